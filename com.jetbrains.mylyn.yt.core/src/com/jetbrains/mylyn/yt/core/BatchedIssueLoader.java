@@ -0,0 +1,135 @@
+package com.jetbrains.mylyn.yt.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
+
+/**
+ * Loads issues by ids with filter queries of batchSize ids, at most parallelism queries at once.
+ * Issues are passed to the collector in the calling thread as batches arrive. Ids no query
+ * returned, e.g. of moved issues, are requested one by one at the end. Waits are cut into slices,
+ * so cancel of the monitor is noticed while requests run.
+ */
+public class BatchedIssueLoader {
+
+  private static final long WAIT_SLICE_MILLIS = 100;
+
+  public interface IssueSource {
+
+    /**
+     * @return issues with given ids the query finds
+     */
+    CompletableFuture<List<YouTrackIssue>> getIssues(List<String> ids);
+
+    CompletableFuture<YouTrackIssue> getIssue(String id);
+  }
+
+  public interface IssueCollector {
+    void accept(YouTrackIssue issue) throws CoreException;
+  }
+
+  private final IssueSource source;
+
+  private final int batchSize;
+
+  private final int parallelism;
+
+  public BatchedIssueLoader(IssueSource source, int batchSize, int parallelism) {
+    this.source = source;
+    this.batchSize = Math.max(1, batchSize);
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  public void load(Collection<String> issueIds, IssueCollector collector,
+      IProgressMonitor monitor) throws CoreException {
+    Set<String> missing = new LinkedHashSet<String>(issueIds);
+    List<String> ids = new ArrayList<String>(missing);
+    List<CompletableFuture<List<YouTrackIssue>>> batches =
+        new ArrayList<CompletableFuture<List<YouTrackIssue>>>();
+    final BlockingQueue<Integer> arrived = new LinkedBlockingQueue<Integer>();
+    int running = 0;
+    try {
+      while (batches.size() * batchSize < ids.size() || running > 0) {
+        while (running < parallelism && batches.size() * batchSize < ids.size()) {
+          final int index = batches.size();
+          CompletableFuture<List<YouTrackIssue>> issues =
+              source.getIssues(ids.subList(index * batchSize,
+                  Math.min(ids.size(), (index + 1) * batchSize)));
+          issues.whenComplete(new BiConsumer<List<YouTrackIssue>, Throwable>() {
+            @Override
+            public void accept(List<YouTrackIssue> result, Throwable e) {
+              arrived.add(index);
+            }
+          });
+          batches.add(issues);
+          running++;
+        }
+        Integer index;
+        while ((index = arrived.poll(WAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+          checkCanceled(monitor);
+        }
+        running--;
+        for (YouTrackIssue issue : get(batches.get(index), monitor)) {
+          checkCanceled(monitor);
+          if (missing.remove(issue.getId())) {
+            collector.accept(issue);
+          }
+        }
+      }
+
+      for (String id : missing) {
+        checkCanceled(monitor);
+        collector.accept(get(source.getIssue(id), monitor));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OperationCanceledException();
+    } finally {
+      for (CompletableFuture<List<YouTrackIssue>> batch : batches) {
+        batch.cancel(false);
+      }
+    }
+  }
+
+  private static void checkCanceled(IProgressMonitor monitor) {
+    if (monitor.isCanceled()) {
+      throw new OperationCanceledException();
+    }
+  }
+
+  private static <T> T get(CompletableFuture<T> future, IProgressMonitor monitor)
+      throws InterruptedException {
+    try {
+      while (true) {
+        try {
+          return future.get(WAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+          checkCanceled(monitor);
+        }
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    } finally {
+      future.cancel(false);
+    }
+  }
+
+}
@@ -0,0 +1,331 @@
+package com.jetbrains.mylyn.yt.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.mylyn.tasks.core.data.TaskData;
+import org.eclipse.mylyn.tasks.core.data.TaskDataCollector;
+
+import com.jetbrains.youtrack.javarest.client.PagedIssueIterator;
+import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
+
+/**
+ * Converts issues of a query to task data in three stages joined by bounded queues: one task
+ * reads pages of issues, parser tasks turn issues into task data, the calling thread passes task
+ * data to the collector. A stage waits when the queue after it is full. Work and wait time of
+ * every stage is summed over all runs, see {@link #format()}.
+ */
+public class QueryPipeline {
+
+  public static final int DEFAULT_PARSER_THREADS = 2;
+
+  public static final int DEFAULT_QUEUE_CAPACITY = 100;
+
+  private static final long WAIT_SLICE_MILLIS = 100;
+
+  private static final Object END = new Object();
+
+  private static final Logger log = Logger.getLogger(QueryPipeline.class);
+
+  /**
+   * Turns an issue to task data, called by several threads at once.
+   */
+  public interface Parser {
+    TaskData parse(YouTrackIssue issue) throws CoreException;
+  }
+
+  public static class StageTimings {
+
+    private final String name;
+
+    private final AtomicLong items = new AtomicLong();
+
+    private final AtomicLong busyNanos = new AtomicLong();
+
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    StageTimings(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getItemCount() {
+      return items.get();
+    }
+
+    /**
+     * @return milliseconds spent on work, summed over threads of the stage
+     */
+    public long getBusyTime() {
+      return TimeUnit.NANOSECONDS.toMillis(busyNanos.get());
+    }
+
+    /**
+     * @return milliseconds spent waiting for the queue before or after the stage
+     */
+    public long getWaitTime() {
+      return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+    }
+
+    void reset() {
+      items.set(0);
+      busyNanos.set(0);
+      waitNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-8s %7d items busy %7d ms wait %7d ms", name, getItemCount(),
+          getBusyTime(), getWaitTime());
+    }
+  }
+
+  private final ExecutorService executor;
+
+  private volatile int parserThreads = DEFAULT_PARSER_THREADS;
+
+  private volatile int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+  private final StageTimings fetch = new StageTimings("fetch");
+
+  private final StageTimings parse = new StageTimings("parse");
+
+  private final StageTimings collect = new StageTimings("collect");
+
+  private final AtomicLong runs = new AtomicLong();
+
+  private final AtomicLong totalNanos = new AtomicLong();
+
+  /**
+   * @param executor executor for fetch and parser tasks, it must start them without waiting for
+   *        running tasks
+   */
+  public QueryPipeline(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  public int getParserThreads() {
+    return parserThreads;
+  }
+
+  public void setParserThreads(int parserThreads) {
+    this.parserThreads = Math.max(1, parserThreads);
+  }
+
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = Math.max(1, queueCapacity);
+  }
+
+  /**
+   * Read all issues, collector is called in the calling thread. Issues are cancelled when run
+   * returns.
+   */
+  public void run(final PagedIssueIterator issues, final Parser parser,
+      TaskDataCollector collector, IProgressMonitor monitor) throws CoreException {
+    long start = System.nanoTime();
+    final int parsers = parserThreads;
+    final BlockingQueue<Object> fetched = new ArrayBlockingQueue<Object>(queueCapacity);
+    final BlockingQueue<Object> parsed = new ArrayBlockingQueue<Object>(queueCapacity);
+    final AtomicBoolean stopped = new AtomicBoolean();
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    List<Future<?>> tasks = new ArrayList<Future<?>>();
+    try {
+      tasks.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            long begin = System.nanoTime();
+            while (issues.hasNext()) {
+              YouTrackIssue issue = issues.next();
+              fetch.busyNanos.addAndGet(System.nanoTime() - begin);
+              fetch.items.incrementAndGet();
+              if (!put(fetched, issue, fetch, stopped)) {
+                return;
+              }
+              begin = System.nanoTime();
+            }
+          } catch (Throwable e) {
+            fail(e, failure, stopped);
+          } finally {
+            issues.cancel();
+            for (int i = 0; i < parsers; i++) {
+              put(fetched, END, fetch, stopped);
+            }
+          }
+        }
+      }));
+
+      for (int i = 0; i < parsers; i++) {
+        tasks.add(executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              Object issue;
+              while ((issue = take(fetched, parse, stopped)) != null && issue != END) {
+                long begin = System.nanoTime();
+                TaskData taskData = parser.parse((YouTrackIssue) issue);
+                parse.busyNanos.addAndGet(System.nanoTime() - begin);
+                parse.items.incrementAndGet();
+                if (!put(parsed, taskData, parse, stopped)) {
+                  return;
+                }
+              }
+            } catch (Throwable e) {
+              fail(e, failure, stopped);
+            } finally {
+              put(parsed, END, parse, stopped);
+            }
+          }
+        }));
+      }
+
+      int running = parsers;
+      while (running > 0) {
+        if (monitor.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+        long begin = System.nanoTime();
+        Object taskData = parsed.poll(WAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS);
+        collect.waitNanos.addAndGet(System.nanoTime() - begin);
+        if (failure.get() != null) {
+          throw failure.get();
+        }
+        if (taskData == END) {
+          running--;
+        } else if (taskData != null) {
+          begin = System.nanoTime();
+          collector.accept((TaskData) taskData);
+          collect.busyNanos.addAndGet(System.nanoTime() - begin);
+          collect.items.incrementAndGet();
+        }
+      }
+    } catch (CoreException e) {
+      throw e;
+    } catch (OperationCanceledException e) {
+      throw e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OperationCanceledException();
+    } catch (Throwable e) {
+      throw new CoreException(new Status(IStatus.ERROR, YouTrackCorePlugin.ID_PLUGIN,
+          "Query failed\n" + e.getMessage(), e));
+    } finally {
+      stopped.set(true);
+      for (Future<?> task : tasks) {
+        task.cancel(false);
+      }
+      runs.incrementAndGet();
+      totalNanos.addAndGet(System.nanoTime() - start);
+      if (log.isDebugEnabled()) {
+        log.debug(format());
+      }
+    }
+  }
+
+  private static void fail(Throwable e, AtomicReference<Throwable> failure, AtomicBoolean stopped) {
+    failure.compareAndSet(null, e);
+    stopped.set(true);
+  }
+
+  /**
+   * @return false if pipeline stopped before there was room for the item
+   */
+  private static boolean put(BlockingQueue<Object> queue, Object item, StageTimings stage,
+      AtomicBoolean stopped) {
+    long begin = System.nanoTime();
+    try {
+      while (!queue.offer(item, WAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS)) {
+        if (stopped.get()) {
+          return false;
+        }
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      stage.waitNanos.addAndGet(System.nanoTime() - begin);
+    }
+  }
+
+  /**
+   * @return null if pipeline stopped before an item came
+   */
+  private static Object take(BlockingQueue<Object> queue, StageTimings stage,
+      AtomicBoolean stopped) {
+    long begin = System.nanoTime();
+    try {
+      Object item;
+      while ((item = queue.poll(WAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+        if (stopped.get()) {
+          return null;
+        }
+      }
+      return item;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } finally {
+      stage.waitNanos.addAndGet(System.nanoTime() - begin);
+    }
+  }
+
+  public StageTimings getFetchTimings() {
+    return fetch;
+  }
+
+  public StageTimings getParseTimings() {
+    return parse;
+  }
+
+  public StageTimings getCollectTimings() {
+    return collect;
+  }
+
+  public long getRunCount() {
+    return runs.get();
+  }
+
+  /**
+   * @return milliseconds spent in {@link #run}, summed over runs
+   */
+  public long getTotalTime() {
+    return TimeUnit.NANOSECONDS.toMillis(totalNanos.get());
+  }
+
+  public void reset() {
+    fetch.reset();
+    parse.reset();
+    collect.reset();
+    runs.set(0);
+    totalNanos.set(0);
+  }
+
+  public String format() {
+    return "Query pipeline: " + getRunCount() + " runs, " + getTotalTime() + " ms, "
+        + parserThreads + " parsers, queues of " + queueCapacity + "\n" + fetch + "\n" + parse
+        + "\n" + collect;
+  }
+
+}
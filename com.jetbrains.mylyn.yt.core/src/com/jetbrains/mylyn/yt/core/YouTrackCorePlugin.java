@@ -14,6 +14,8 @@ import org.osgi.framework.BundleContext;
 import util.PluginExceptionLogListener;
 import util.StdOutErrLog;
 
+import com.jetbrains.youtrack.javarest.client.JaxbBindings;
+
 public class YouTrackCorePlugin extends Plugin {
 
   public static final String ID_PLUGIN = "com.jetbrains.mylyn.yt.core";
@@ -22,6 +24,57 @@ public class YouTrackCorePlugin extends Plugin {
 
   public static final String REPOSITORY_KEY_PATH = ID_PLUGIN + ".path";
 
+  public static final String REPOSITORY_KEY_POOLED_TRANSPORT = ID_PLUGIN + ".pooledTransport";
+
+  public static final String REPOSITORY_KEY_MAX_CONNECTIONS_PER_HOST = ID_PLUGIN
+      + ".maxConnectionsPerHost";
+
+  public static final String REPOSITORY_KEY_MAX_TOTAL_CONNECTIONS = ID_PLUGIN
+      + ".maxTotalConnections";
+
+  public static final String REPOSITORY_KEY_KEEP_ALIVE_TTL = ID_PLUGIN + ".keepAliveTtl";
+
+  public static final String REPOSITORY_KEY_CONNECT_TIMEOUT = ID_PLUGIN + ".connectTimeout";
+
+  public static final String REPOSITORY_KEY_READ_TIMEOUT = ID_PLUGIN + ".readTimeout";
+
+  public static final String REPOSITORY_KEY_RETRY_ATTEMPTS = ID_PLUGIN + ".retryAttempts";
+
+  public static final String REPOSITORY_KEY_BREAKER_THRESHOLD = ID_PLUGIN + ".breakerThreshold";
+
+  public static final String REPOSITORY_KEY_COMPRESSION = ID_PLUGIN + ".compression";
+
+  public static final String REPOSITORY_KEY_HTTP_CACHE = ID_PLUGIN + ".httpCache";
+
+  public static final String REPOSITORY_KEY_HTTP_CACHE_MAX_ENTRIES = ID_PLUGIN
+      + ".httpCacheMaxEntries";
+
+  public static final String REPOSITORY_KEY_HTTP_CACHE_SPILL = ID_PLUGIN + ".httpCacheSpill";
+
+  public static final String REPOSITORY_KEY_ISSUE_PAGE_SIZE = ID_PLUGIN + ".issuePageSize";
+
+  public static final String REPOSITORY_KEY_PARSER_THREADS = ID_PLUGIN + ".parserThreads";
+
+  public static final String REPOSITORY_KEY_PIPELINE_QUEUE_CAPACITY = ID_PLUGIN
+      + ".pipelineQueueCapacity";
+
+  public static final String REPOSITORY_KEY_MULTI_TASK_PARALLELISM = ID_PLUGIN
+      + ".multiTaskParallelism";
+
+  public static final String REPOSITORY_KEY_METRICS_DUMP_INTERVAL = ID_PLUGIN
+      + ".metricsDumpInterval";
+
+  public static final String REPOSITORY_KEY_WIKI_RENDERING = ID_PLUGIN + ".wikiRendering";
+
+  public static final String REPOSITORY_KEY_WIRE_FORMAT = ID_PLUGIN + ".wireFormat";
+
+  public static final String REPOSITORY_KEY_WIRE_LOG_MODE = ID_PLUGIN + ".wireLogMode";
+
+  public static final String REPOSITORY_KEY_WIRE_LOG_BODY_LIMIT = ID_PLUGIN + ".wireLogBodyLimit";
+
+  public static final String REPOSITORY_KEY_WIRE_LOG_SAMPLE_RATE = ID_PLUGIN
+      + ".wireLogSampleRate";
+
   public static final String QUERY_KEY_SUMMARY = ID_PLUGIN + ".summary";
 
   public static final String QUERY_KEY_PROJECT = ID_PLUGIN + ".project";
@@ -32,6 +85,14 @@ public class YouTrackCorePlugin extends Plugin {
 
   public static final String QUERY_IS_CUSTOM = ID_PLUGIN + ".custom";
 
+  /** latest update time of issues seen by the last sync of the query */
+  public static final String QUERY_KEY_UPDATED_MARK = ID_PLUGIN + ".updatedMark";
+
+  /** filter the update mark belongs to */
+  public static final String QUERY_KEY_SYNCED_FILTER = ID_PLUGIN + ".syncedFilter";
+
+  public static final String QUERY_KEY_LAST_FULL_SYNC = ID_PLUGIN + ".lastFullSync";
+
   private static YouTrackCorePlugin plugin;
 
   public YouTrackCorePlugin() {}
@@ -52,10 +113,19 @@ public class YouTrackCorePlugin extends Plugin {
 
     ILogListener iL = new PluginExceptionLogListener();
     Platform.addLogListener(iL);
+
+    // build JAXB context of REST model in background, first synchronization does not wait for it
+    YouTrackRepositoryConnector.getNetworkExecutor().execute(new Runnable() {
+      @Override
+      public void run() {
+        JaxbBindings.getContext();
+      }
+    });
   }
 
   @Override
   public void stop(BundleContext context) throws Exception {
+    YouTrackRepositoryConnector.shutdownNetworkExecutor();
     plugin = null;
     super.stop(context);
   }
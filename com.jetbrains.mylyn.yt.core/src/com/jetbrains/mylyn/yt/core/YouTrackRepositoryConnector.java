@@ -4,19 +4,30 @@
 
 package com.jetbrains.mylyn.yt.core;
 
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
+import org.apache.log4j.Logger;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.mylyn.internal.tasks.core.AbstractTaskContainer;
 import org.eclipse.mylyn.internal.tasks.core.RepositoryQuery;
 import org.eclipse.mylyn.internal.tasks.core.TaskList;
@@ -33,28 +44,48 @@ import org.eclipse.mylyn.tasks.core.data.TaskMapper;
 import org.eclipse.mylyn.tasks.core.data.TaskRelation;
 import org.eclipse.mylyn.tasks.core.sync.ISynchronizationSession;
 
+import com.jetbrains.youtrack.javarest.client.AuthenticationManager;
+import com.jetbrains.youtrack.javarest.client.BundleCache;
+import com.jetbrains.youtrack.javarest.client.ClientMetrics;
+import com.jetbrains.youtrack.javarest.client.PagedIssueIterator;
+import com.jetbrains.youtrack.javarest.client.WireLoggingFilter;
+import com.jetbrains.youtrack.javarest.client.YouTrackAsyncClient;
 import com.jetbrains.youtrack.javarest.client.YouTrackClient;
 import com.jetbrains.youtrack.javarest.client.YouTrackClientFactory;
+import com.jetbrains.youtrack.javarest.client.YouTrackClientSettings;
+import com.jetbrains.youtrack.javarest.client.YouTrackCustomField;
 import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
 import com.jetbrains.youtrack.javarest.client.YouTrackProject;
 import com.jetbrains.youtrack.javarest.utils.MyRunnable;
+import com.jetbrains.youtrack.javarest.utils.NetworkExecutors;
 import com.jetbrains.youtrack.javarest.utils.YouTrackTimeSettings;
 
 public class YouTrackRepositoryConnector extends AbstractRepositoryConnector {
 
   private static final long REPOSITORY_CONFIGURATION_UPDATE_INTERVAL = 2 * 60 * 60 * 1000;
 
+  /**
+   * Background syncs of a query only fetch issues updated since the previous sync, a full sync
+   * which also drops issues no longer matching the query runs at least this often.
+   */
+  private static final long QUERY_FULL_SYNC_INTERVAL = 6 * 60 * 60 * 1000;
+
+  /** issues updated slightly before the mark are requested again in case of late commits */
+  private static final long UPDATED_MARK_OVERLAP = 60 * 1000;
+
   private static Map<TaskRepository, YouTrackTimeSettings> timeSettingsByRepository =
-      new HashMap<TaskRepository, YouTrackTimeSettings>();
+      Collections.synchronizedMap(new HashMap<TaskRepository, YouTrackTimeSettings>());
 
   private static Map<TaskRepository, YouTrackClient> clientByRepository =
       new HashMap<TaskRepository, YouTrackClient>();
 
   private static Map<TaskRepository, HashSet<YouTrackProject>> projectsByRepository =
-      new HashMap<TaskRepository, HashSet<YouTrackProject>>();
+      Collections.synchronizedMap(new HashMap<TaskRepository, HashSet<YouTrackProject>>());
+
+  private static final Object projectsLock = new Object();
   
   private static Map<String, String> mylyn2youtrackIssueId =
-      new HashMap<String, String>();
+      Collections.synchronizedMap(new HashMap<String, String>());
 
   private final YouTrackTaskDataHandler taskDataHandler;
 
@@ -62,32 +93,59 @@ public class YouTrackRepositoryConnector extends AbstractRepositoryConnector {
 
   public final static String ISSUE_URL_PREFIX = "/issue/";
 
-  private static YouTrackClientFactory clientFactory;
+  private static Map<TaskRepository, YouTrackClientFactory> clientFactoryByRepository =
+      new HashMap<TaskRepository, YouTrackClientFactory>();
+
+  private static ExecutorService networkExecutor;
+
+  private static Map<TaskRepository, QueryPipeline> queryPipelineByRepository =
+      new HashMap<TaskRepository, QueryPipeline>();
+
+  private static final String HTTP_CACHE_DIRECTORY = "http-cache";
+
+  private static final Logger metricsLog = Logger.getLogger(ClientMetrics.class.getName());
 
   public YouTrackRepositoryConnector() {
     taskDataHandler = new YouTrackTaskDataHandler(this);
-    clientFactory = new YouTrackClientFactory();
   }
 
   public static YouTrackProject getProject(TaskRepository repository, String projectname) {
-    if (!projectsByRepository.keySet().contains(repository)) {
-      YouTrackClient client = getClient(repository);
-      List<YouTrackProject> projects = client.getProjects();
-      if (projects.size() == 0) {
-        boolean loged = client.login(repository.getUserName(), repository.getPassword());
-        return loged ? getProject(repository, projectname) : null;
+    for (YouTrackProject project : getProjects(repository)) {
+      if (project.getProjectShortName().equals(projectname)) {
+        return project;
       }
-      projectsByRepository.put(repository, new HashSet<YouTrackProject>(projects));
     }
+    return null;
+  }
 
+  /**
+   * Projects are loaded once per repository. Concurrent callers wait for the first one, so all of
+   * them get the same project objects and schemas loaded into them aren't lost.
+   */
+  private static Set<YouTrackProject> getProjects(TaskRepository repository) {
     HashSet<YouTrackProject> projects = projectsByRepository.get(repository);
-
-    for (YouTrackProject project : projects) {
-      if (project.getProjectShortName().equals(projectname)) {
-        return project;
+    if (projects != null) {
+      return projects;
+    }
+    synchronized (projectsLock) {
+      projects = projectsByRepository.get(repository);
+      if (projects == null) {
+        YouTrackClient client = getClient(repository);
+        List<YouTrackProject> loaded = client.getProjects();
+        if (loaded.size() == 0) {
+          if (!client.login(repository.getUserName(), repository.getPassword())) {
+            return Collections.emptySet();
+          }
+          loaded = client.getProjects();
+          if (loaded.size() == 0) {
+            return Collections.emptySet();
+          }
+        }
+        projects = new HashSet<YouTrackProject>(loaded);
+        projectsByRepository.put(repository, projects);
       }
+      return projects;
     }
-    return null;
   }
 
   public static void updateProjectCustomFields(TaskRepository repository, String projectname) {
@@ -105,7 +163,7 @@ public class YouTrackRepositoryConnector extends AbstractRepositoryConnector {
         project.updateCustomFields(client);
       }
     } else {
-      for (YouTrackProject repoProject : projectsByRepository.get(repository)) {
+      for (YouTrackProject repoProject : getProjects(repository)) {
         if (!repoProject.isCustomFieldsUpdated()) {
           repoProject.updateCustomFields(client);
         }
@@ -113,7 +171,26 @@ public class YouTrackRepositoryConnector extends AbstractRepositoryConnector {
     }
   }
 
+  /**
+   * Reload fields of the project, its bundles are requested again.
+   */
   public static void forceUpdateProjectCustomFields(TaskRepository repository, String projectname) {
+    final YouTrackProject project = YouTrackRepositoryConnector.getProject(repository, projectname);
+    if (project != null) {
+      BundleCache bundles = getClient(repository).getBundleCache();
+      for (YouTrackCustomField field : project.getCustomFields()) {
+        if (field.getBundle() != null) {
+          bundles.invalidate(field.getType(), field.getBundle().getName());
+        }
+      }
+    }
+    reloadProjectCustomFields(repository, projectname);
+  }
+
+  /**
+   * Reload fields of the project, bundles already in the cache of the client are reused.
+   */
+  private static void reloadProjectCustomFields(TaskRepository repository, String projectname) {
 
     final YouTrackProject project = YouTrackRepositoryConnector.getProject(repository, projectname);
 
@@ -131,13 +208,202 @@ public class YouTrackRepositoryConnector extends AbstractRepositoryConnector {
   public static synchronized YouTrackClient getClient(TaskRepository repository) {
     YouTrackClient client = clientByRepository.get(repository);
     if (client == null) {
-      client = clientFactory.getClient(repository.getRepositoryUrl());
+      client = getClientFactory(repository).getClient(repository.getRepositoryUrl());
       clientByRepository.put(repository, client);
-      client.login(repository.getUserName(), repository.getPassword());
+      // no login request here: session is opened by the first call, token needs no session
+      if (AuthenticationManager.isPermanentToken(repository.getPassword())) {
+        client.setPermanentToken(repository.getPassword());
+      } else {
+        client.setUsername(repository.getUserName());
+        client.setPassword(repository.getPassword());
+      }
     }
     return client;
   }
 
+  /**
+   * @return client which runs calls on the shared network executor
+   */
+  public static YouTrackAsyncClient getAsyncClient(TaskRepository repository) {
+    return getClient(repository).async(getNetworkExecutor());
+  }
+
+  /**
+   * Shared executor for blocking REST calls: virtual threads on Java 21+, bounded platform pool
+   * otherwise. Eclipse job threads submit requests here and only wait for results. Clients, their
+   * retries, user and schema loading and query pipelines all run on it.
+   */
+  public static synchronized ExecutorService getNetworkExecutor() {
+    if (networkExecutor == null) {
+      networkExecutor = NetworkExecutors.newNetworkExecutor("YouTrack network");
+    }
+    return networkExecutor;
+  }
+
+  public static synchronized void shutdownNetworkExecutor() {
+    if (networkExecutor != null) {
+      networkExecutor.shutdownNow();
+      networkExecutor = null;
+    }
+  }
+
+  private static synchronized YouTrackClientFactory getClientFactory(TaskRepository repository) {
+    YouTrackClientFactory factory = clientFactoryByRepository.get(repository);
+    if (factory == null) {
+      factory = new YouTrackClientFactory(getClientSettings(repository), getNetworkExecutor());
+      clientFactoryByRepository.put(repository, factory);
+      final String repositoryUrl = repository.getRepositoryUrl();
+      factory.getMetrics().scheduleDump(factory.getSettings().getMetricsDumpInterval(),
+          new Consumer<String>() {
+            @Override
+            public void accept(String metrics) {
+              metricsLog.info(repositoryUrl + " " + metrics);
+            }
+          });
+    }
+    return factory;
+  }
+
+  /**
+   * @return pipeline which converts query results of the repository, with its stage timings
+   */
+  public static synchronized QueryPipeline getQueryPipeline(TaskRepository repository) {
+    QueryPipeline pipeline = queryPipelineByRepository.get(repository);
+    if (pipeline == null) {
+      pipeline = new QueryPipeline(getNetworkExecutor());
+      queryPipelineByRepository.put(repository, pipeline);
+    }
+    pipeline.setParserThreads(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_PARSER_THREADS, QueryPipeline.DEFAULT_PARSER_THREADS));
+    pipeline.setQueueCapacity(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_PIPELINE_QUEUE_CAPACITY,
+        QueryPipeline.DEFAULT_QUEUE_CAPACITY));
+    return pipeline;
+  }
+
+  /**
+   * @return calls sent to the repository by endpoint since its client was created
+   */
+  public static ClientMetrics getClientMetrics(TaskRepository repository) {
+    return getClientFactory(repository).getMetrics();
+  }
+
+  /**
+   * Drop cached client and close its connections, next getClient call creates client with actual
+   * repository settings.
+   */
+  public static synchronized void resetClient(TaskRepository repository) {
+    clientByRepository.remove(repository);
+    YouTrackClientFactory factory = clientFactoryByRepository.remove(repository);
+    if (factory != null) {
+      factory.shutdown();
+    }
+  }
+
+  public static YouTrackClientSettings getClientSettings(TaskRepository repository) {
+    YouTrackClientSettings settings = new YouTrackClientSettings();
+    settings.setPooledTransport(getBooleanProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_POOLED_TRANSPORT, settings.isPooledTransport()));
+    settings.setMaxConnectionsPerHost(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_MAX_CONNECTIONS_PER_HOST,
+        settings.getMaxConnectionsPerHost()));
+    settings.setMaxTotalConnections(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_MAX_TOTAL_CONNECTIONS, settings.getMaxTotalConnections()));
+    settings.setKeepAliveTtl(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_KEEP_ALIVE_TTL, settings.getKeepAliveTtl()));
+    settings.setConnectTimeout(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_CONNECT_TIMEOUT, settings.getConnectTimeout()));
+    settings.setReadTimeout(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_READ_TIMEOUT, settings.getReadTimeout()));
+    settings.setRetryMaxAttempts(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_RETRY_ATTEMPTS, settings.getRetryMaxAttempts()));
+    settings.setBreakerFailureThreshold(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_BREAKER_THRESHOLD, settings.getBreakerFailureThreshold()));
+    settings.setCompression(getBooleanProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_COMPRESSION, settings.isCompression()));
+    settings.setIssuePageSize(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_ISSUE_PAGE_SIZE, settings.getIssuePageSize()));
+    settings.setHttpCache(getBooleanProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_HTTP_CACHE, settings.isHttpCache()));
+    settings.setHttpCacheMaxEntries(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_HTTP_CACHE_MAX_ENTRIES, settings.getHttpCacheMaxEntries()));
+    String repositoryPath = repository.getProperty(YouTrackCorePlugin.REPOSITORY_KEY_PATH);
+    if (repositoryPath != null
+        && getBooleanProperty(repository, YouTrackCorePlugin.REPOSITORY_KEY_HTTP_CACHE_SPILL, false)) {
+      settings.setHttpCacheDirectory(new File(repositoryPath, HTTP_CACHE_DIRECTORY));
+    }
+    settings.setMetricsDumpInterval(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_METRICS_DUMP_INTERVAL,
+        (int) settings.getMetricsDumpInterval()));
+    settings.setWireFormat(getWireFormat(repository));
+    settings.setWireLogMode(getWireLogMode(repository));
+    settings.setWireLogBodyLimit(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_WIRE_LOG_BODY_LIMIT, settings.getWireLogBodyLimit()));
+    settings.setWireLogSampleRate(getIntProperty(repository,
+        YouTrackCorePlugin.REPOSITORY_KEY_WIRE_LOG_SAMPLE_RATE, settings.getWireLogSampleRate()));
+    return settings;
+  }
+
+  private static YouTrackClient.WireFormat getWireFormat(TaskRepository repository) {
+    String value = repository.getProperty(YouTrackCorePlugin.REPOSITORY_KEY_WIRE_FORMAT);
+    if (value != null && value.trim().length() > 0) {
+      try {
+        return YouTrackClient.WireFormat.valueOf(value.trim());
+      } catch (IllegalArgumentException e) {
+        // unknown format, XML is used
+      }
+    }
+    return YouTrackClient.WireFormat.XML;
+  }
+
+  /**
+   * @return wiki rendering mode of the repository, lazy if not set
+   */
+  public static YouTrackTaskDataHandler.WikiRendering getWikiRendering(TaskRepository repository) {
+    String value = repository.getProperty(YouTrackCorePlugin.REPOSITORY_KEY_WIKI_RENDERING);
+    if (value != null && value.trim().length() > 0) {
+      try {
+        return YouTrackTaskDataHandler.WikiRendering.valueOf(value.trim());
+      } catch (IllegalArgumentException e) {
+        // unknown mode, lazy rendering is used
+      }
+    }
+    return YouTrackTaskDataHandler.WikiRendering.LAZY;
+  }
+
+  private static WireLoggingFilter.Mode getWireLogMode(TaskRepository repository) {
+    String value = repository.getProperty(YouTrackCorePlugin.REPOSITORY_KEY_WIRE_LOG_MODE);
+    if (value != null && value.trim().length() > 0) {
+      try {
+        return WireLoggingFilter.Mode.valueOf(value.trim());
+      } catch (IllegalArgumentException e) {
+        // unknown mode, logging stays off
+      }
+    }
+    return WireLoggingFilter.Mode.OFF;
+  }
+
+  public static int getIntProperty(TaskRepository repository, String key, int defaultValue) {
+    String value = repository.getProperty(key);
+    if (value != null && value.trim().length() > 0) {
+      try {
+        return Integer.parseInt(value.trim());
+      } catch (NumberFormatException e) {
+        // use default value
+      }
+    }
+    return defaultValue;
+  }
+
+  public static boolean getBooleanProperty(TaskRepository repository, String key,
+      boolean defaultValue) {
+    String value = repository.getProperty(key);
+    if (value != null && value.trim().length() > 0) {
+      return Boolean.parseBoolean(value.trim());
+    }
+    return defaultValue;
+  }
+
   public static synchronized YouTrackTimeSettings getTimeSettings(TaskRepository repository) {
     YouTrackTimeSettings timeSettings = timeSettingsByRepository.get(repository);
     if (timeSettings == null) {
@@ -224,38 +490,172 @@ public class YouTrackRepositoryConnector extends AbstractRepositoryConnector {
 
   @Override
   public boolean hasTaskChanged(TaskRepository taskRepository, ITask task, TaskData taskData) {
-    // ignore
-    return false;
+    Date repositoryDate = getTaskMapping(taskData).getModificationDate();
+    Date localDate = task.getModificationDate();
+    return repositoryDate == null || localDate == null || !repositoryDate.equals(localDate);
   }
 
   @Override
   public IStatus performQuery(final TaskRepository repository, final IRepositoryQuery query,
-      final TaskDataCollector collector, ISynchronizationSession session,
+      final TaskDataCollector collector, final ISynchronizationSession session,
       final IProgressMonitor monitor) {
 
     return new MyRunnable() {
       @Override
       public void run() throws Exception {
-        List<YouTrackIssue> issues = null;
         String projectname = query.getAttribute(YouTrackCorePlugin.QUERY_KEY_PROJECT);
         String filter = query.getAttribute(YouTrackCorePlugin.QUERY_KEY_FILTER);
-
-        // ad ten because of state may update slowly and actual issues
-        // count may be greater than rest returned
-        int issuesCount = queryIssuesAmount(projectname, filter, repository);
-        issues =
-            getClient(repository).getIssuesByFilter(getFilter(projectname, filter, repository),
-                issuesCount + 10);
-
-        for (YouTrackIssue issue : issues) {
-          TaskData taskData = taskDataHandler.readTaskData(repository, issue, monitor);
-          collector.accept(taskData);
+        String fullFilter = getFilter(projectname, filter, repository);
+        long now = System.currentTimeMillis();
+
+        long updatedMark;
+        if (isIncrementalSync(query, session, projectname, fullFilter, now)) {
+          updatedMark = performIncrementalQuery(repository, query, collector, monitor);
+        } else {
+          updatedMark = performFullQuery(repository, projectname, filter, collector, monitor);
+          if (session != null) {
+            query.setAttribute(YouTrackCorePlugin.QUERY_KEY_LAST_FULL_SYNC, Long.toString(now));
+          }
+        }
+        if (session != null) {
+          query.setAttribute(YouTrackCorePlugin.QUERY_KEY_SYNCED_FILTER, fullFilter);
+          query.setAttribute(YouTrackCorePlugin.QUERY_KEY_UPDATED_MARK,
+              Long.toString(Math.max(updatedMark, getLongAttribute(query,
+                  YouTrackCorePlugin.QUERY_KEY_UPDATED_MARK))));
         }
       }
     }.execute("Query failed", YouTrackCorePlugin.ID_PLUGIN);
 
   }
 
+  /**
+   * Incremental sync needs the byproject request, a stored mark of the same filter, a recent full
+   * sync and a background run; user initiated syncs are always full.
+   */
+  public static boolean isIncrementalSync(IRepositoryQuery query, ISynchronizationSession session,
+      String projectname, String fullFilter, long now) {
+    return session != null && !session.isUser() && projectname != null
+        && !projectname.equals("") && query instanceof RepositoryQuery
+        && fullFilter.equals(query.getAttribute(YouTrackCorePlugin.QUERY_KEY_SYNCED_FILTER))
+        && getLongAttribute(query, YouTrackCorePlugin.QUERY_KEY_UPDATED_MARK) > 0
+        && now - getLongAttribute(query, YouTrackCorePlugin.QUERY_KEY_LAST_FULL_SYNC)
+            < QUERY_FULL_SYNC_INTERVAL;
+  }
+
+  private static long getLongAttribute(IRepositoryQuery query, String key) {
+    try {
+      String value = query.getAttribute(key);
+      return value != null ? Long.parseLong(value) : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * @return latest update time of received issues
+   */
+  private long performFullQuery(TaskRepository repository, String projectname, String filter,
+      TaskDataCollector collector, IProgressMonitor monitor) throws Exception {
+    // no count request: pages are read until a short one, so issues added while the server
+    // still counts aren't cut off; next page is loaded while current is converted to task data
+    PagedIssueIterator issues =
+        getClient(repository).iterateIssuesByFilter(getFilter(projectname, filter, repository),
+            getClientFactory(repository).getSettings().getIssuePageSize(), -1,
+            getNetworkExecutor());
+    return collectIssues(repository, issues, collector, null, monitor);
+  }
+
+  /**
+   * Issues updated since the mark are sent in full, other issues of the query are sent as
+   * partial task data with their local modification date, so they stay in the query and
+   * {@link #hasTaskChanged(TaskRepository, ITask, TaskData)} reports them unchanged. Issues of the
+   * project updated since the mark are also read without the filter: children among them that the
+   * filter no longer matches are not sent, so they leave the query.
+   * 
+   * @return latest update time of received issues
+   */
+  private long performIncrementalQuery(TaskRepository repository, IRepositoryQuery query,
+      TaskDataCollector collector, IProgressMonitor monitor) throws Exception {
+    String projectname = query.getAttribute(YouTrackCorePlugin.QUERY_KEY_PROJECT);
+    String filter = query.getAttribute(YouTrackCorePlugin.QUERY_KEY_FILTER);
+    long updatedAfter =
+        Math.max(0, getLongAttribute(query, YouTrackCorePlugin.QUERY_KEY_UPDATED_MARK)
+            - UPDATED_MARK_OVERLAP);
+    YouTrackClient client = getClient(repository);
+    int pageSize = getClientFactory(repository).getSettings().getIssuePageSize();
+
+    PagedIssueIterator issues =
+        client.iterateIssuesInProject(projectname, filter != null ? filter : "", updatedAfter,
+            pageSize, -1, getNetworkExecutor());
+    Set<String> received = new HashSet<String>();
+    long updatedMark = collectIssues(repository, issues, collector, received, monitor);
+
+    Set<String> updated = new HashSet<String>();
+    PagedIssueIterator updatedIssues =
+        client.iterateIssuesInProject(projectname, "", updatedAfter, pageSize, -1, null);
+    while (updatedIssues.hasNext()) {
+      if (monitor.isCanceled()) {
+        updatedIssues.cancel();
+        throw new OperationCanceledException();
+      }
+      updated.add(getMylynIssueId(updatedIssues.next().getId()));
+    }
+
+    for (ITask task : getUnchangedChildren(((RepositoryQuery) query).getChildren(), received,
+        updated)) {
+      TaskData taskData =
+          new TaskData(taskDataHandler.getAttributeMapper(repository), getConnectorKind(),
+              repository.getRepositoryUrl(), task.getTaskId());
+      taskData.setPartial(true);
+      TaskMapper mapper = new TaskMapper(taskData, true);
+      mapper.setTaskKey(task.getTaskKey());
+      mapper.setSummary(task.getSummary());
+      mapper.setModificationDate(task.getModificationDate());
+      collector.accept(taskData);
+    }
+    return updatedMark;
+  }
+
+  /**
+   * Children of the query neither received with the filter nor updated since the mark. A child
+   * updated but not received doesn't match the filter anymore.
+   */
+  public static List<ITask> getUnchangedChildren(Collection<ITask> children,
+      Set<String> received, Set<String> updated) {
+    List<ITask> unchanged = new ArrayList<ITask>();
+    for (ITask task : children) {
+      if (!received.contains(task.getTaskId()) && !updated.contains(task.getTaskId())) {
+        unchanged.add(task);
+      }
+    }
+    return unchanged;
+  }
+
+  private long collectIssues(final TaskRepository repository, PagedIssueIterator issues,
+      final TaskDataCollector collector, final Set<String> received,
+      final IProgressMonitor monitor) throws CoreException {
+    final long[] updatedMark = {-1};
+    getQueryPipeline(repository).run(issues, new QueryPipeline.Parser() {
+      @Override
+      public TaskData parse(YouTrackIssue issue) throws CoreException {
+        return taskDataHandler.readTaskData(repository, issue, monitor);
+      }
+    }, new TaskDataCollector() {
+      @Override
+      public void accept(TaskData taskData) {
+        Date updated = getTaskMapping(taskData).getModificationDate();
+        if (updated != null) {
+          updatedMark[0] = Math.max(updatedMark[0], updated.getTime());
+        }
+        if (received != null) {
+          received.add(taskData.getTaskId());
+        }
+        collector.accept(taskData);
+      }
+    }, monitor);
+    return updatedMark[0];
+  }
+
   public String getFilter(String projectname, String filter, TaskRepository repository) {
     String returnFilter = new String(filter);
     if (filter != null) {
@@ -268,11 +668,13 @@ public class YouTrackRepositoryConnector extends AbstractRepositoryConnector {
     return returnFilter;
   }
 
+  /**
+   * Number of issues for display, synchronization doesn't need it. May wait while the server
+   * counts issues.
+   */
   public int queryIssuesAmount(String projectname, String filter, TaskRepository repository)
       throws CoreException {
-	  String str = getFilter(projectname, filter, repository);
-	  System.out.println("called queryIssuesAmount(" + str + ")");
-    return getClient(repository).getNumberOfIssues(str);
+    return getClient(repository).getNumberOfIssues(getFilter(projectname, filter, repository));
   }
 
   @Override
@@ -327,8 +729,8 @@ public class YouTrackRepositoryConnector extends AbstractRepositoryConnector {
    * update projects data for every existed project in every query associated with repository
    */
   @Override
-  public void updateRepositoryConfiguration(TaskRepository taskRepository, IProgressMonitor monitor)
-      throws CoreException {
+  public void updateRepositoryConfiguration(final TaskRepository taskRepository,
+      IProgressMonitor monitor) throws CoreException {
 
     Set<String> projects = new HashSet<String>();
     TaskList taskList = TasksUiPlugin.getTaskList();
@@ -338,8 +740,28 @@ public class YouTrackRepositoryConnector extends AbstractRepositoryConnector {
       }
     }
 
-    for (String projectname : projects) {
-      forceUpdateProjectCustomFields(taskRepository, projectname);
+    // bundles shared by projects are requested once for all of them
+    getClient(taskRepository).getBundleCache().invalidateAll();
+    List<CompletableFuture<Void>> updates = new LinkedList<CompletableFuture<Void>>();
+    for (final String projectname : projects) {
+      updates.add(CompletableFuture.runAsync(new Runnable() {
+        @Override
+        public void run() {
+          reloadProjectCustomFields(taskRepository, projectname);
+        }
+      }, getNetworkExecutor()));
+    }
+    try {
+      CompletableFuture.allOf(updates.toArray(new CompletableFuture[updates.size()])).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      for (CompletableFuture<Void> update : updates) {
+        update.cancel(false);
+      }
+      throw new OperationCanceledException();
+    } catch (ExecutionException e) {
+      throw new CoreException(new Status(IStatus.ERROR, YouTrackCorePlugin.ID_PLUGIN,
+          "Failed to update repository configuration: " + e.getCause().getMessage(), e.getCause()));
     }
   }
 
@@ -10,14 +10,19 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.mylyn.tasks.core.IRepositoryPerson;
 import org.eclipse.mylyn.tasks.core.ITaskMapping;
 import org.eclipse.mylyn.tasks.core.RepositoryResponse;
 import org.eclipse.mylyn.tasks.core.RepositoryResponse.ResponseKind;
@@ -32,9 +37,12 @@ import org.eclipse.osgi.util.NLS;
 
 import util.CastCheck;
 
+import com.jetbrains.youtrack.javarest.client.IssueConflictException;
 import com.jetbrains.youtrack.javarest.client.IssueLink;
 import com.jetbrains.youtrack.javarest.client.IssueTag;
+import com.jetbrains.youtrack.javarest.client.YouTrackAsyncClient;
 import com.jetbrains.youtrack.javarest.client.YouTrackClient;
+import com.jetbrains.youtrack.javarest.client.UserDirectory;
 import com.jetbrains.youtrack.javarest.client.YouTrackComment;
 import com.jetbrains.youtrack.javarest.client.YouTrackCustomField;
 import com.jetbrains.youtrack.javarest.client.YouTrackCustomField.YouTrackCustomFieldType;
@@ -65,6 +73,9 @@ public class YouTrackTaskDataHandler extends AbstractTaskDataHandler {
 
   public static final String TYPE_HTML = "TaskAttribute.TYPE_HTML";
 
+  /** present while wikified description and comments are not loaded */
+  public static final String WIKI_PENDING = "TaskAttribute.WIKI_PENDING";
+
   public static final String LINK_PREFIX = "TaskAttribute.LINK_";
 
   public static final String TAG_PREFIX = "TaskAttribute.TAG_";
@@ -75,8 +86,22 @@ public class YouTrackTaskDataHandler extends AbstractTaskDataHandler {
 
   public static final String SINGLE_FIELD_KIND = "TaslAttributeKind.ORDINARY_FIELD_KIND";
 
+  /** ids per filter query of getMultiTaskData */
+  public static final int MULTI_TASK_BATCH_SIZE = 50;
+
+  public static final int DEFAULT_MULTI_TASK_PARALLELISM = 4;
+
   public static final SimpleDateFormat YOUTRACK_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
 
+  /**
+   * How wikified description and comments are obtained: EAGER requests them along with every
+   * parsed issue, LAZY leaves escaped plain text and requests them when the task editor shows
+   * the issue, see {@link #loadWikiRendering(TaskRepository, TaskData)}.
+   */
+  public enum WikiRendering {
+    EAGER, LAZY
+  }
+
   public YouTrackTaskDataHandler(YouTrackRepositoryConnector connector) {
     this.connector = connector;
   }
@@ -123,21 +148,33 @@ public class YouTrackTaskDataHandler extends AbstractTaskDataHandler {
         client.updateIssue(uploadIssueId, issue);
         return new RepositoryResponse(ResponseKind.TASK_CREATED, uploadIssueId);
       } else {
-        // upload new comments
+        String issueId = taskData.getRoot().getAttribute(TaskAttribute.TASK_KEY).getValue();
+        if (oldAttributes != null) {
+          // old state is known from the editor, diff locally and let server check that issue
+          // wasn't changed since it was loaded
+          YouTrackIssue oldIssue = buildIssue(repository, getOldTaskData(taskData, oldAttributes));
+          client.updateIssue(issueId, oldIssue, issue, getUpdated(taskData));
+        } else {
+          client.updateIssue(issueId, issue);
+        }
+
+        // upload new comments after the update, comment changes issue modification time
         String newComment = getNewComment(taskData);
         if (newComment != null && newComment.length() > 0) {
-          client.addComment(taskData.getRoot().getAttribute(TaskAttribute.TASK_KEY).getValue(),
-              newComment);
+          client.addComment(issueId, newComment);
           taskData.getRoot().getMappedAttribute(COMMENT_NEW).clearValues();
         }
 
-        client.updateIssue(taskData.getRoot().getAttribute(TaskAttribute.TASK_KEY).getValue(),
-            issue);
         setEnableEditMode(false);
         return new RepositoryResponse(taskData.isNew()
             ? ResponseKind.TASK_CREATED
             : ResponseKind.TASK_UPDATED, taskData.getTaskId());
       }
+    } catch (IssueConflictException e) {
+      throw new CoreException(new org.eclipse.core.runtime.Status(IStatus.ERROR,
+          YouTrackCorePlugin.ID_PLUGIN, IStatus.OK, NLS.bind(
+              "Issue {0} was changed on server since it was opened. Refresh it and submit again.",
+              e.getIssueId()), e));
     } catch (CoreException e) {
       if (issue.getId() != null) {
         client.deleteIssue(issue.getId());
@@ -262,10 +299,87 @@ public class YouTrackTaskDataHandler extends AbstractTaskDataHandler {
     }
   }
 
+  /**
+   * Replaces plain text of description and comments with their wiki rendering if task data was
+   * read in {@link WikiRendering#LAZY} mode. Costs one request, does nothing if rendering is
+   * already there.
+   * 
+   * @return true if task data was changed
+   */
+  public boolean loadWikiRendering(TaskRepository repository, TaskData taskData)
+      throws CoreException {
+    YouTrackIssue wikifyIssue = getWikiRendering(repository, taskData);
+    if (wikifyIssue == null) {
+      return false;
+    }
+    applyWikiRendering(taskData, wikifyIssue);
+    return true;
+  }
+
+  public static boolean isWikiRenderingPending(TaskData taskData) {
+    return taskData.getRoot().getAttribute(WIKI_PENDING) != null;
+  }
+
+  /**
+   * Requests the issue with wiki rendering, task data isn't changed, so it can be called outside
+   * of the thread which shows task data.
+   * 
+   * @return null if task data already has wiki rendering
+   */
+  public YouTrackIssue getWikiRendering(TaskRepository repository, TaskData taskData)
+      throws CoreException {
+    if (!isWikiRenderingPending(taskData)) {
+      return null;
+    }
+    String issueId = taskData.getRoot().getAttribute(TaskAttribute.TASK_KEY).getValue();
+    try {
+      return connector.getClient(repository).getIssue(issueId, true);
+    } catch (RuntimeException e) {
+      throw new CoreException(new Status(IStatus.ERROR, YouTrackCorePlugin.ID_PLUGIN, NLS.bind(
+          "Can't load wiki rendering of {0}\n" + e.getMessage(), issueId), e));
+    }
+  }
+
+  /**
+   * Comments are matched by id, comments added or deleted since task data was read keep their
+   * text.
+   */
+  public static void applyWikiRendering(TaskData taskData, YouTrackIssue wikifyIssue) {
+    taskData.getRoot().getAttribute(WIKIFY_DESCRIPTION).setValue(wikifyIssue.getDescription());
+    if (wikifyIssue.getComments() != null) {
+      Map<String, String> texts = new HashMap<String, String>();
+      for (YouTrackComment comment : wikifyIssue.getComments()) {
+        if (comment.getId() != null) {
+          texts.put(comment.getId(), comment.getText());
+        }
+      }
+      for (TaskAttribute comment : taskData.getAttributeMapper().getAttributesByType(taskData,
+          TaskAttribute.TYPE_COMMENT)) {
+        String text = texts.get(TaskCommentMapper.createFrom(comment).getCommentId());
+        if (text != null && comment.getMappedAttribute(TaskAttribute.COMMENT_TEXT) != null) {
+          comment.getMappedAttribute(TaskAttribute.COMMENT_TEXT).setValue(text);
+        }
+      }
+    }
+    taskData.getRoot().removeAttribute(WIKI_PENDING);
+  }
+
+  /*
+   * plain text shown by html browser until wiki rendering is loaded
+   */
+  private static String toHtml(String text) {
+    if (text == null) {
+      return null;
+    }
+    return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+        .replace("\n", "<br>");
+  }
+
   public TaskData parseIssue(TaskRepository repository, YouTrackIssue issue,
       IProgressMonitor monitor) throws CoreException {
 
-    issue.mapFields();
+    UserDirectory users = connector.getClient(repository).getUserDirectory();
+    issue.mapFields(users);
 
     /*
      * because valid id not contain '-': public static boolean isValidTaskId(String taskId) { return
@@ -283,9 +397,16 @@ public class YouTrackTaskDataHandler extends AbstractTaskDataHandler {
     attribute = taskData.getRoot().getAttribute(TaskAttribute.DESCRIPTION);
     attribute.setValue(issue.getDescription());
 
-    YouTrackIssue wikifyIssue = connector.getClient(repository).getIssue(issueId, true);
+    YouTrackIssue wikifyIssue;
     attribute = taskData.getRoot().getAttribute(WIKIFY_DESCRIPTION);
-    attribute.setValue(wikifyIssue.getDescription());
+    if (YouTrackRepositoryConnector.getWikiRendering(repository) == WikiRendering.EAGER) {
+      wikifyIssue = connector.getClient(repository).getIssue(issueId, true);
+      attribute.setValue(wikifyIssue.getDescription());
+    } else {
+      wikifyIssue = issue;
+      attribute.setValue(toHtml(issue.getDescription()));
+      taskData.getRoot().createAttribute(WIKI_PENDING).setValue(Boolean.TRUE.toString());
+    }
 
     attribute = taskData.getRoot().getAttribute(TaskAttribute.TASK_KEY);
     attribute.setValue(issueId);
@@ -299,10 +420,12 @@ public class YouTrackTaskDataHandler extends AbstractTaskDataHandler {
         new Date(Long.parseLong(issue.getSingleField("updated"))));
 
     attribute = taskData.getRoot().getAttribute(TaskAttribute.USER_REPORTER);
-    attribute.setValue(issue.getSingleField("reporterFullName"));
+    attribute.setValue(users.getFullName(issue.getSingleField("reporterName"),
+        issue.getSingleField("reporterFullName")));
 
     attribute = taskData.getRoot().getAttribute(USER_UPDATER);
-    attribute.setValue(issue.getSingleField("updaterFullName"));
+    attribute.setValue(users.getFullName(issue.getSingleField("updaterName"),
+        issue.getSingleField("updaterFullName")));
 
     attribute = taskData.getRoot().getAttribute(TaskAttribute.PRODUCT);
     attribute.setValue(issue.getProjectName());
@@ -375,10 +498,13 @@ public class YouTrackTaskDataHandler extends AbstractTaskDataHandler {
       int count = 0;
       for (YouTrackComment comment : wikifyIssue.getComments()) {
 
-        mapper.setAuthor(repository.createPerson(comment.getAuthorName()));
+        IRepositoryPerson author = repository.createPerson(comment.getAuthorName());
+        author.setName(users.getFullName(comment.getAuthorName(), null));
+        mapper.setAuthor(author);
         mapper.setCreationDate(comment.getCreationDate());
-        mapper.setText(comment.getText());
+        mapper.setText(wikifyIssue == issue ? toHtml(comment.getText()) : comment.getText());
         mapper.setNumber(count+1);
+        mapper.setCommentId(comment.getId());
 
         TaskAttribute commentAttribute =
             taskData.getRoot().createAttribute(TaskAttribute.PREFIX_COMMENT + count);
@@ -574,6 +700,33 @@ public class YouTrackTaskDataHandler extends AbstractTaskDataHandler {
     return issue;
   }
 
+  /**
+   * @return copy of task data with changed attributes in the state before editing
+   */
+  private TaskData getOldTaskData(TaskData taskData, Set<TaskAttribute> oldAttributes) {
+    Map<String, TaskAttribute> changed = new HashMap<String, TaskAttribute>();
+    for (TaskAttribute attribute : oldAttributes) {
+      changed.put(attribute.getId(), attribute);
+    }
+    TaskData oldData =
+        new TaskData(taskData.getAttributeMapper(), taskData.getConnectorKind(),
+            taskData.getRepositoryUrl(), taskData.getTaskId());
+    for (TaskAttribute attribute : taskData.getRoot().getAttributes().values()) {
+      TaskAttribute oldAttribute = changed.get(attribute.getId());
+      oldData.getRoot().deepAddCopy(oldAttribute != null ? oldAttribute : attribute);
+    }
+    return oldData;
+  }
+
+  /**
+   * @return time of last change of issue as loaded, 0 if unknown
+   */
+  private long getUpdated(TaskData taskData) {
+    TaskAttribute attribute = taskData.getRoot().getAttribute(TaskAttribute.DATE_MODIFICATION);
+    Date updated = attribute != null ? taskData.getAttributeMapper().getDateValue(attribute) : null;
+    return updated != null ? updated.getTime() : 0;
+  }
+
   public static List<String> unzipList(List<String> list) {
     if (list.size() > 0) {
       String s = list.get(0);
@@ -597,11 +750,15 @@ public class YouTrackTaskDataHandler extends AbstractTaskDataHandler {
             YouTrackRepositoryConnector.getProject(taskRepository, taskData.getRoot()
                 .getMappedAttribute(TaskAttribute.PRODUCT).getValue());
 
+        // load tags while project schema is updating
+        CompletableFuture<String[]> userTags =
+            YouTrackRepositoryConnector.getAsyncClient(taskRepository).getUserTags();
+
         if (isEnableEditMode() && !project.isCustomFieldsUpdated()) {
           project.updateCustomFields(YouTrackRepositoryConnector.getClient(taskRepository));
         }
 
-        String[] tags = YouTrackRepositoryConnector.getClient(taskRepository).getUserTags();
+        String[] tags = YouTrackAsyncClient.join(userTags);
 
         for (TaskAttribute attr : taskData.getRoot().getAttributes().values()) {
           if (TaskAttribute.DESCRIPTION.equals(attr.getId())) {
@@ -649,7 +806,7 @@ public class YouTrackTaskDataHandler extends AbstractTaskDataHandler {
                       ((UserBundleValues) customField.getBundle().getBundleValues()).getFullUsers();
                   if (users != null) {
                     for (UserValue user : users) {
-                      String option = user.getFullName() + " (" + user.getValue() + ")";
+                      String option = UserDirectory.format(user.getValue(), user.getFullName());
                       if (YouTrackCustomFieldType.getTypeByName(customField.getType()).equals(
                           YouTrackCustomFieldType.USER_SINGLE)) {
                         attr.putOption(option, option);
@@ -729,22 +886,61 @@ public class YouTrackTaskDataHandler extends AbstractTaskDataHandler {
     }
   }
 
+  /**
+   * Issues are loaded by {@link BatchedIssueLoader} with filter queries of
+   * {@link #MULTI_TASK_BATCH_SIZE} ids, at most
+   * {@link YouTrackCorePlugin#REPOSITORY_KEY_MULTI_TASK_PARALLELISM} queries at once.
+   */
   @Override
   public void getMultiTaskData(final TaskRepository repository, Set<String> taskIds,
-      final TaskDataCollector collector, IProgressMonitor monitor) throws CoreException {
+      final TaskDataCollector collector, final IProgressMonitor monitor) throws CoreException {
     try {
       monitor.beginTask("Receiving_tasks", taskIds.size());
-      final YouTrackClient client = YouTrackRepositoryConnector.getClient(repository);
+      int parallelism =
+          Math.max(1, YouTrackRepositoryConnector.getIntProperty(repository,
+              YouTrackCorePlugin.REPOSITORY_KEY_MULTI_TASK_PARALLELISM,
+              DEFAULT_MULTI_TASK_PARALLELISM));
 
+      List<String> ids = new ArrayList<String>();
       for (String id : taskIds) {
-        collector.accept(parseIssue(repository,
-            client.getIssue(YouTrackRepositoryConnector.getYoutrackIssueId(id)), monitor));
+        ids.add(YouTrackRepositoryConnector.getYoutrackIssueId(id));
       }
+      final YouTrackAsyncClient client = YouTrackRepositoryConnector.getAsyncClient(repository);
+      new BatchedIssueLoader(new BatchedIssueLoader.IssueSource() {
+        @Override
+        public CompletableFuture<List<YouTrackIssue>> getIssues(List<String> ids) {
+          return client.getIssuesByFilter(getIssueIdFilter(ids), ids.size());
+        }
+
+        @Override
+        public CompletableFuture<YouTrackIssue> getIssue(String id) {
+          return client.getIssue(id);
+        }
+      }, MULTI_TASK_BATCH_SIZE, parallelism).load(ids, new BatchedIssueLoader.IssueCollector() {
+        @Override
+        public void accept(YouTrackIssue issue) throws CoreException {
+          collector.accept(parseIssue(repository, issue, monitor));
+          monitor.worked(1);
+        }
+      }, monitor);
+    } catch (OperationCanceledException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      throw new CoreException(new Status(IStatus.ERROR, YouTrackCorePlugin.ID_PLUGIN,
+          "Can't receive tasks\n" + e.getMessage(), e));
     } finally {
       monitor.done();
     }
   }
 
+  private static String getIssueIdFilter(List<String> ids) {
+    StringBuilder filter = new StringBuilder("issue id: ");
+    for (int i = 0; i < ids.size(); i++) {
+      filter.append(i > 0 ? ", " : "").append(ids.get(i));
+    }
+    return filter.toString();
+  }
+
   private SimpleDateFormat getDateFormat() {
     return YOUTRACK_DATE_FORMAT;
   }
@@ -47,6 +47,14 @@ public class AllYouTrackTests {
     fixture.add(YouTrackRepositorySettingsPageTest.class);
     fixture.add(YouTrackTaskEditorTest.class);
     fixture.add(CorrectJaxbBindingTest.class);
+    fixture.add(JaxbBindingsTest.class);
+    fixture.add(IssueCommandCompilerTest.class);
+    fixture.add(WireFormatTest.class);
+    fixture.add(QueryPipelineTest.class);
+    fixture.add(UserBundleResolverTest.class);
+    fixture.add(BatchedIssueLoaderTest.class);
+    fixture.add(IncrementalSyncTest.class);
+    fixture.add(WikiRenderingTest.class);
 
     fixture.done();
   }
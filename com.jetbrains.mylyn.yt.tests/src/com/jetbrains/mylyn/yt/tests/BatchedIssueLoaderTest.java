@@ -0,0 +1,173 @@
+package com.jetbrains.mylyn.yt.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import com.jetbrains.mylyn.yt.core.BatchedIssueLoader;
+import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
+
+/**
+ * Loads issues from a stub source whose filter queries don't find moved issues.
+ */
+public class BatchedIssueLoaderTest extends TestCase {
+
+  private ExecutorService executor;
+
+  private final List<List<String>> queries =
+      Collections.synchronizedList(new ArrayList<List<String>>());
+
+  private final List<String> singleRequests = Collections.synchronizedList(new ArrayList<String>());
+
+  private final AtomicInteger running = new AtomicInteger();
+
+  private final AtomicInteger maxRunning = new AtomicInteger();
+
+  /** ids filter queries don't return */
+  private final Set<String> moved = new HashSet<String>();
+
+  /** a query is never answered while set */
+  private volatile boolean hang = false;
+
+  private final BatchedIssueLoader.IssueSource source = new BatchedIssueLoader.IssueSource() {
+    @Override
+    public CompletableFuture<List<YouTrackIssue>> getIssues(final List<String> ids) {
+      final List<String> query = new ArrayList<String>(ids);
+      queries.add(query);
+      final CompletableFuture<List<YouTrackIssue>> result =
+          new CompletableFuture<List<YouTrackIssue>>();
+      if (hang) {
+        return result;
+      }
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          int now = running.incrementAndGet();
+          synchronized (maxRunning) {
+            maxRunning.set(Math.max(maxRunning.get(), now));
+          }
+          try {
+            Thread.sleep(20);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          List<YouTrackIssue> issues = new ArrayList<YouTrackIssue>();
+          for (String id : query) {
+            if (!moved.contains(id)) {
+              issues.add(new YouTrackIssue(id));
+            }
+          }
+          running.decrementAndGet();
+          result.complete(issues);
+        }
+      });
+      return result;
+    }
+
+    @Override
+    public CompletableFuture<YouTrackIssue> getIssue(String id) {
+      singleRequests.add(id);
+      return CompletableFuture.completedFuture(new YouTrackIssue(id));
+    }
+  };
+
+  @Override
+  protected void setUp() throws Exception {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdownNow();
+  }
+
+  private static List<String> ids(int count) {
+    List<String> ids = new ArrayList<String>();
+    for (int i = 0; i < count; i++) {
+      ids.add("P-" + i);
+    }
+    return ids;
+  }
+
+  private List<String> load(List<String> ids) throws CoreException {
+    final List<String> loaded = new ArrayList<String>();
+    final Thread caller = Thread.currentThread();
+    new BatchedIssueLoader(source, 10, 3).load(ids, new BatchedIssueLoader.IssueCollector() {
+      @Override
+      public void accept(YouTrackIssue issue) {
+        assertSame(caller, Thread.currentThread());
+        loaded.add(issue.getId());
+      }
+    }, new NullProgressMonitor());
+    return loaded;
+  }
+
+  public void testBatches() throws Exception {
+    List<String> loaded = load(ids(95));
+    assertEquals(95, loaded.size());
+    assertEquals(new HashSet<String>(ids(95)), new HashSet<String>(loaded));
+    assertEquals(10, queries.size());
+    assertEquals(5, queries.get(9).size());
+    assertTrue(maxRunning.get() <= 3);
+    assertTrue(singleRequests.isEmpty());
+  }
+
+  public void testDuplicateIds() throws Exception {
+    List<String> ids = ids(15);
+    ids.addAll(ids(5));
+    assertEquals(15, load(ids).size());
+    assertEquals(2, queries.size());
+  }
+
+  public void testMovedIssuesLoadedOneByOne() throws Exception {
+    moved.add("P-3");
+    moved.add("P-27");
+    List<String> loaded = load(ids(30));
+    assertEquals(30, loaded.size());
+    assertEquals(3, queries.size());
+    assertEquals(2, singleRequests.size());
+    assertTrue(singleRequests.contains("P-3"));
+    assertTrue(singleRequests.contains("P-27"));
+    // leftovers come last
+    assertEquals(new HashSet<String>(singleRequests), new HashSet<String>(loaded.subList(28, 30)));
+  }
+
+  public void testCancelWhileWaiting() throws Exception {
+    hang = true;
+    final NullProgressMonitor monitor = new NullProgressMonitor();
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(200);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        monitor.setCanceled(true);
+      }
+    });
+    try {
+      new BatchedIssueLoader(source, 10, 3).load(ids(50),
+          new BatchedIssueLoader.IssueCollector() {
+            @Override
+            public void accept(YouTrackIssue issue) {}
+          }, monitor);
+      fail("load must stop when monitor is cancelled");
+    } catch (OperationCanceledException e) {
+      assertEquals(3, queries.size());
+    }
+  }
+
+}
@@ -1,6 +1,12 @@
 package com.jetbrains.mylyn.yt.tests;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Consumer;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -9,6 +15,7 @@ import javax.xml.bind.Unmarshaller;
 import junit.framework.TestCase;
 
 import com.jetbrains.youtrack.javarest.client.IssueSchemaField;
+import com.jetbrains.youtrack.javarest.client.IssueStreamReader;
 import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
 
 public class CorrectJaxbBindingTest extends TestCase {
@@ -38,4 +45,28 @@ public class CorrectJaxbBindingTest extends TestCase {
       fail("JAXB issue not created");
     }
   }
+
+  public void testStreamIssueList() throws Exception {
+    String issue =
+        new String(Files.readAllBytes(new File("src/com/jetbrains/mylyn/yt/tests/test_issue.xml")
+            .toPath()), StandardCharsets.UTF_8);
+    String list = "<issueCompacts>" + issue + issue + issue + "</issueCompacts>";
+    final List<YouTrackIssue> issues = new LinkedList<YouTrackIssue>();
+    int count =
+        IssueStreamReader.read(new ByteArrayInputStream(list.getBytes(StandardCharsets.UTF_8)),
+            new Consumer<YouTrackIssue>() {
+              @Override
+              public void accept(YouTrackIssue issue) {
+                issues.add(issue);
+              }
+            });
+    assertEquals(3, count);
+    assertEquals(3, issues.size());
+    for (YouTrackIssue parsed : issues) {
+      assertEquals("1-10", parsed.getId());
+      parsed.mapFields();
+      assertEquals("Mylyn Concepts and Usage", parsed.getSingleField("summary"));
+      assertEquals(4, parsed.getTags().size());
+    }
+  }
 }
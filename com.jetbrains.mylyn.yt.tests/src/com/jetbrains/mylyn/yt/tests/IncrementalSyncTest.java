@@ -0,0 +1,107 @@
+package com.jetbrains.mylyn.yt.tests;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.mylyn.internal.tasks.core.RepositoryQuery;
+import org.eclipse.mylyn.internal.tasks.core.TaskTask;
+import org.eclipse.mylyn.internal.tasks.core.sync.SynchronizationSession;
+import org.eclipse.mylyn.tasks.core.ITask;
+
+import com.jetbrains.mylyn.yt.core.YouTrackCorePlugin;
+import com.jetbrains.mylyn.yt.core.YouTrackRepositoryConnector;
+
+/**
+ * Checks when a query sync only fetches issues updated since the stored mark, no server needed.
+ */
+public class IncrementalSyncTest extends TestCase {
+
+  private static final long HOUR = 60 * 60 * 1000;
+
+  private static final String PROJECT = "TP";
+
+  private static final String FILTER = "project: TP #Unresolved";
+
+  private final long now = System.currentTimeMillis();
+
+  private RepositoryQuery query;
+
+  private SynchronizationSession session;
+
+  @Override
+  protected void setUp() throws Exception {
+    // state performQuery leaves after a background full sync an hour ago
+    query = new RepositoryQuery("youtrack", "handle-incremental-sync");
+    query.setAttribute(YouTrackCorePlugin.QUERY_KEY_SYNCED_FILTER, FILTER);
+    query.setAttribute(YouTrackCorePlugin.QUERY_KEY_UPDATED_MARK, Long.toString(now - HOUR));
+    query.setAttribute(YouTrackCorePlugin.QUERY_KEY_LAST_FULL_SYNC, Long.toString(now - HOUR));
+    session = new SynchronizationSession();
+    session.setUser(false);
+  }
+
+  private boolean isIncrementalSync(String fullFilter) {
+    return YouTrackRepositoryConnector.isIncrementalSync(query, session, PROJECT, fullFilter, now);
+  }
+
+  public void testBackgroundSync() {
+    assertTrue(isIncrementalSync(FILTER));
+  }
+
+  public void testFilterChangeForcesFullSync() {
+    assertFalse(isIncrementalSync("project: TP #Resolved"));
+  }
+
+  public void testNoMark() {
+    query.setAttribute(YouTrackCorePlugin.QUERY_KEY_UPDATED_MARK, null);
+    assertFalse(isIncrementalSync(FILTER));
+    query.setAttribute(YouTrackCorePlugin.QUERY_KEY_UPDATED_MARK, "broken");
+    assertFalse(isIncrementalSync(FILTER));
+  }
+
+  public void testStaleMark() {
+    // last full sync is older than the full sync interval of 6 hours
+    query.setAttribute(YouTrackCorePlugin.QUERY_KEY_LAST_FULL_SYNC, Long.toString(now - 7 * HOUR));
+    assertFalse(isIncrementalSync(FILTER));
+    query.setAttribute(YouTrackCorePlugin.QUERY_KEY_LAST_FULL_SYNC, null);
+    assertFalse(isIncrementalSync(FILTER));
+  }
+
+  public void testUserSyncIsFull() {
+    session.setUser(true);
+    assertFalse(isIncrementalSync(FILTER));
+  }
+
+  public void testNoSessionIsFull() {
+    assertFalse(YouTrackRepositoryConnector.isIncrementalSync(query, null, PROJECT, FILTER, now));
+  }
+
+  public void testQueryWithoutProjectIsFull() {
+    assertFalse(YouTrackRepositoryConnector.isIncrementalSync(query, session, "", FILTER, now));
+    assertFalse(YouTrackRepositoryConnector.isIncrementalSync(query, session, null, FILTER, now));
+  }
+
+  private static ITask task(String id) {
+    return new TaskTask("youtrack", "http://localhost/youtrack", id);
+  }
+
+  private static Set<String> ids(String... ids) {
+    return new HashSet<String>(Arrays.asList(ids));
+  }
+
+  public void testUpdatedChildLeavesQuery() {
+    // TP-1 updated and still unresolved, TP-2 resolved since the mark, TP-3 untouched
+    ITask updated = task("TP-1");
+    ITask resolved = task("TP-2");
+    ITask untouched = task("TP-3");
+    List<ITask> unchanged =
+        YouTrackRepositoryConnector.getUnchangedChildren(
+            Arrays.asList(updated, resolved, untouched), ids("TP-1"), ids("TP-1", "TP-2"));
+    assertEquals(1, unchanged.size());
+    assertSame(untouched, unchanged.get(0));
+  }
+
+}
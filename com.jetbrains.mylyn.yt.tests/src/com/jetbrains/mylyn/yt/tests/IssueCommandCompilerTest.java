@@ -0,0 +1,208 @@
+package com.jetbrains.mylyn.yt.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.jetbrains.youtrack.javarest.client.IssueCommandCompiler.IssueUpdate;
+import com.jetbrains.youtrack.javarest.client.IssueConflictException;
+import com.jetbrains.youtrack.javarest.client.JaxbBindings;
+import com.jetbrains.youtrack.javarest.client.YouTrackClient;
+import com.jetbrains.youtrack.javarest.client.YouTrackCustomField;
+import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
+import com.sun.jersey.api.client.Client;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks HTTP calls sent by updateIssue for typical edits and conflicts against a local stub
+ * server.
+ */
+public class IssueCommandCompilerTest extends TestCase {
+
+  private static final String ISSUE_ID = "1-10";
+
+  /** updated field of test_issue.xml */
+  private static final long UPDATED = 1366288494408L;
+
+  private byte[] issueXml;
+
+  private HttpServer server;
+
+  private final List<String> requests = Collections.synchronizedList(new LinkedList<String>());
+
+  private YouTrackClient client;
+
+  /** server answers 412 to requests with If-Unmodified-Since */
+  private volatile boolean modifiedOnServer = false;
+
+  @Override
+  protected void setUp() throws Exception {
+    issueXml =
+        Files.readAllBytes(new File("src/com/jetbrains/mylyn/yt/tests/test_issue.xml").toPath());
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        String body =
+            new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String unmodifiedSince = exchange.getRequestHeaders().getFirst("If-Unmodified-Since");
+        requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " "
+            + URLDecoder.decode(body, "UTF-8")
+            + (unmodifiedSince != null ? " [If-Unmodified-Since: " + unmodifiedSince + "]" : ""));
+        if (modifiedOnServer && unmodifiedSince != null) {
+          exchange.sendResponseHeaders(412, -1);
+          exchange.close();
+          return;
+        }
+        byte[] response = "GET".equals(exchange.getRequestMethod()) ? issueXml : new byte[0];
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, response.length > 0 ? response.length : -1);
+        OutputStream out = exchange.getResponseBody();
+        out.write(response);
+        out.close();
+      }
+    });
+    server.start();
+    client =
+        new YouTrackClient(Client.create().resource(
+            "http://localhost:" + server.getAddress().getPort() + "/rest"));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    server.stop(0);
+  }
+
+  private YouTrackIssue parseIssue() throws Exception {
+    YouTrackIssue issue =
+        JaxbBindings.unmarshal(new ByteArrayInputStream(issueXml), YouTrackIssue.class);
+    issue.mapFields();
+    addFieldInfo(issue, "Priority", "enum[1]");
+    addFieldInfo(issue, "Type", "enum[1]");
+    addFieldInfo(issue, "State", "state[1]");
+    addFieldInfo(issue, "Subsystem", "ownedField[*]");
+    addFieldInfo(issue, "Note", "string");
+    return issue;
+  }
+
+  private void addFieldInfo(YouTrackIssue issue, String name, String type) {
+    YouTrackCustomField field = new YouTrackCustomField();
+    field.setName(name);
+    field.setType(type);
+    issue.getCustomFieldsInfo().put(name, field);
+  }
+
+  private int measure(YouTrackIssue newIssue) throws Exception {
+    requests.clear();
+    IssueUpdate update = client.updateIssue(ISSUE_ID, parseIssue(), newIssue);
+    assertEquals(update.getCallCount(), requests.size());
+    return requests.size();
+  }
+
+  private void editSixFields(YouTrackIssue issue) {
+    issue.addCustomFieldValue("Priority", "Major");
+    issue.addCustomFieldValue("Type", "Bug");
+    issue.addCustomFieldValue("State", "Fixed");
+    issue.addCustomFieldValue("Subsystem", "UI");
+    issue.addTag("Release");
+    issue.getTags().removeFirst();
+  }
+
+  public void testNoChanges() throws Exception {
+    assertEquals(0, measure(parseIssue()));
+  }
+
+  public void testSummaryAndDescription() throws Exception {
+    YouTrackIssue issue = parseIssue();
+    issue.addSingleField(YouTrackIssue.PROJECT_SUMMARY_FIELD, "New summary");
+    issue.addSingleField(YouTrackIssue.PROJECT_DESCRIPTION_FIELD, "New description");
+    assertEquals(1, measure(issue));
+  }
+
+  public void testSixFields() throws Exception {
+    YouTrackIssue issue = parseIssue();
+    editSixFields(issue);
+    issue.addCustomFieldValue("Note", "checked");
+    assertEquals(1, measure(issue));
+
+    String command = requests.get(0);
+    assertTrue(command, command.startsWith("POST /rest/issue/" + ISSUE_ID + "/execute"));
+    assertTrue(command, command.indexOf("remove Subsystem No subsystem") < command
+        .indexOf("add Subsystem UI"));
+    assertTrue(command, command.contains("remove tag Star"));
+    assertTrue(command, command.contains("add tag Release"));
+    assertTrue(command, command.contains("Note: checked"));
+  }
+
+  public void testSixFieldsAndSummaryWithText() throws Exception {
+    YouTrackIssue issue = parseIssue();
+    editSixFields(issue);
+    issue.addSingleField(YouTrackIssue.PROJECT_SUMMARY_FIELD, "New summary");
+    issue.addCustomFieldValue("Note", "multi word note");
+    assertEquals(3, measure(issue));
+    assertTrue(requests.get(1), requests.get(1).endsWith("command=Note: multi word note"));
+  }
+
+  public void testMultiWordTags() throws Exception {
+    YouTrackIssue issue = parseIssue();
+    issue.getTags().remove(1);
+    issue.addTag("needs review");
+    issue.addTag("Release");
+    assertEquals(3, measure(issue));
+    assertTrue(requests.get(0), requests.get(0).endsWith("command=remove tag New tag"));
+    assertTrue(requests.get(1), requests.get(1).endsWith("command=add tag needs review"));
+    assertTrue(requests.get(2), requests.get(2).endsWith("command=add tag Release"));
+  }
+
+  public void testOnlyFirstRequestIsConditional() throws Exception {
+    YouTrackIssue issue = parseIssue();
+    editSixFields(issue);
+    issue.addSingleField(YouTrackIssue.PROJECT_SUMMARY_FIELD, "New summary");
+    client.updateIssue(ISSUE_ID, parseIssue(), issue, UPDATED);
+    assertEquals(3, requests.size());
+    assertTrue(requests.get(0), requests.get(0).startsWith("GET /rest/issue/" + ISSUE_ID));
+    assertTrue(requests.get(1),
+        requests.get(1).endsWith("[If-Unmodified-Since: Thu, 18 Apr 2013 12:34:55 GMT]"));
+    assertFalse(requests.get(2), requests.get(2).contains("If-Unmodified-Since"));
+  }
+
+  public void testConflict() throws Exception {
+    modifiedOnServer = true;
+    YouTrackIssue issue = parseIssue();
+    editSixFields(issue);
+    try {
+      client.updateIssue(ISSUE_ID, parseIssue(), issue, UPDATED);
+      fail("Conflict expected while update issue changed on server.");
+    } catch (IssueConflictException e) {
+      assertEquals(ISSUE_ID, e.getIssueId());
+    }
+    assertEquals(2, requests.size());
+  }
+
+  public void testConflictWithinSecond() throws Exception {
+    // server ignores If-Unmodified-Since or its second granularity hides the change
+    YouTrackIssue issue = parseIssue();
+    editSixFields(issue);
+    try {
+      client.updateIssue(ISSUE_ID, parseIssue(), issue, UPDATED - 1);
+      fail("Conflict expected while update issue changed on server.");
+    } catch (IssueConflictException e) {
+      assertEquals(ISSUE_ID, e.getIssueId());
+    }
+    assertEquals(1, requests.size());
+    assertTrue(requests.get(0), requests.get(0).startsWith("GET /rest/issue/" + ISSUE_ID));
+  }
+
+}
@@ -0,0 +1,75 @@
+package com.jetbrains.mylyn.yt.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+
+import javax.xml.bind.JAXBContext;
+
+import junit.framework.TestCase;
+
+import com.jetbrains.youtrack.javarest.client.JaxbBindings;
+import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
+
+/**
+ * Prints per-issue unmarshal time of a context built per call, of a cached context with new
+ * unmarshaller per call (Jersey default) and of shared context with pooled unmarshallers. Not part
+ * of {@link AllYouTrackTests}, {@link JaxbBindingsTest} checks the results.
+ */
+public class JaxbBindingBenchmarkTest extends TestCase {
+
+  private static final int WARMUP = 50;
+
+  private static final int ITERATIONS = 500;
+
+  private byte[] issueXml;
+
+  @Override
+  protected void setUp() throws Exception {
+    issueXml =
+        Files.readAllBytes(new File("src/com/jetbrains/mylyn/yt/tests/test_issue.xml").toPath());
+  }
+
+  private interface Parser {
+    YouTrackIssue parse() throws Exception;
+  }
+
+  private long measure(Parser parser, int iterations) throws Exception {
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      parser.parse();
+    }
+    return (System.nanoTime() - start) / iterations / 1000;
+  }
+
+  private void benchmark(String name, Parser parser, int iterations) throws Exception {
+    measure(parser, Math.min(WARMUP, iterations));
+    System.out.println("JAXB " + name + ": " + measure(parser, iterations) + " us per issue");
+  }
+
+  public void testUnmarshalTime() throws Exception {
+    final JAXBContext cachedContext = JAXBContext.newInstance(YouTrackIssue.class);
+
+    benchmark("context per call", new Parser() {
+      @Override
+      public YouTrackIssue parse() throws Exception {
+        return (YouTrackIssue) JAXBContext.newInstance(YouTrackIssue.class).createUnmarshaller()
+            .unmarshal(new ByteArrayInputStream(issueXml));
+      }
+    }, ITERATIONS / 10);
+    benchmark("unmarshaller per call", new Parser() {
+      @Override
+      public YouTrackIssue parse() throws Exception {
+        return (YouTrackIssue) cachedContext.createUnmarshaller().unmarshal(
+            new ByteArrayInputStream(issueXml));
+      }
+    }, ITERATIONS);
+    benchmark("shared context, pooled unmarshaller", new Parser() {
+      @Override
+      public YouTrackIssue parse() throws Exception {
+        return JaxbBindings.unmarshal(new ByteArrayInputStream(issueXml), YouTrackIssue.class);
+      }
+    }, ITERATIONS);
+  }
+
+}
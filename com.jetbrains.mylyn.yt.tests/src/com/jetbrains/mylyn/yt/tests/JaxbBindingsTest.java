@@ -0,0 +1,82 @@
+package com.jetbrains.mylyn.yt.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.bind.JAXBContext;
+
+import junit.framework.TestCase;
+
+import com.jetbrains.youtrack.javarest.client.JaxbBindings;
+import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
+
+/**
+ * Shared context and pooled unmarshallers read the same issue as a context built per call, also
+ * when used from several threads.
+ */
+public class JaxbBindingsTest extends TestCase {
+
+  private static final int ITERATIONS = 200;
+
+  private byte[] issueXml;
+
+  @Override
+  protected void setUp() throws Exception {
+    issueXml =
+        Files.readAllBytes(new File("src/com/jetbrains/mylyn/yt/tests/test_issue.xml").toPath());
+  }
+
+  private static void assertSameIssue(YouTrackIssue expected, YouTrackIssue actual) {
+    expected.mapFields();
+    actual.mapFields();
+    assertEquals(expected.getId(), actual.getId());
+    assertEquals(expected.getSummary(), actual.getSummary());
+    assertEquals(expected.getDescription(), actual.getDescription());
+    assertEquals(expected.getCustomFieldsValues(), actual.getCustomFieldsValues());
+    assertEquals(expected.getStringTags(), actual.getStringTags());
+    assertEquals(expected.getComments().size(), actual.getComments().size());
+  }
+
+  public void testSameIssueFromEveryBinding() throws Exception {
+    YouTrackIssue perCall =
+        (YouTrackIssue) JAXBContext.newInstance(YouTrackIssue.class).createUnmarshaller()
+            .unmarshal(new ByteArrayInputStream(issueXml));
+    JAXBContext cachedContext = JAXBContext.newInstance(YouTrackIssue.class);
+    for (int i = 0; i < ITERATIONS; i++) {
+      assertSameIssue(perCall, (YouTrackIssue) cachedContext.createUnmarshaller().unmarshal(
+          new ByteArrayInputStream(issueXml)));
+      assertSameIssue(perCall,
+          JaxbBindings.unmarshal(new ByteArrayInputStream(issueXml), YouTrackIssue.class));
+    }
+  }
+
+  public void testPooledUnmarshallersConcurrently() throws Exception {
+    final YouTrackIssue expected =
+        JaxbBindings.unmarshal(new ByteArrayInputStream(issueXml), YouTrackIssue.class);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<YouTrackIssue>> issues = new ArrayList<Future<YouTrackIssue>>();
+      for (int i = 0; i < ITERATIONS; i++) {
+        issues.add(executor.submit(new Callable<YouTrackIssue>() {
+          @Override
+          public YouTrackIssue call() throws Exception {
+            return JaxbBindings.unmarshal(new ByteArrayInputStream(issueXml), YouTrackIssue.class);
+          }
+        }));
+      }
+      for (Future<YouTrackIssue> issue : issues) {
+        assertSameIssue(expected, issue.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
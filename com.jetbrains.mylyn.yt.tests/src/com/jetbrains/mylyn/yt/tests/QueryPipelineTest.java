@@ -0,0 +1,157 @@
+package com.jetbrains.mylyn.yt.tests;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.mylyn.tasks.core.TaskRepository;
+import org.eclipse.mylyn.tasks.core.data.TaskAttributeMapper;
+import org.eclipse.mylyn.tasks.core.data.TaskData;
+import org.eclipse.mylyn.tasks.core.data.TaskDataCollector;
+
+import com.jetbrains.mylyn.yt.core.QueryPipeline;
+import com.jetbrains.youtrack.javarest.client.PagedIssueIterator;
+import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
+import com.jetbrains.youtrack.javarest.utils.NetworkExecutors;
+
+/**
+ * Runs the query pipeline on generated issues, no server needed.
+ */
+public class QueryPipelineTest extends TestCase {
+
+  private static final String URL = "http://localhost/youtrack";
+
+  private TaskRepository repository;
+
+  private QueryPipeline pipeline;
+
+  @Override
+  protected void setUp() throws Exception {
+    repository = new TaskRepository("youtrack", URL);
+    pipeline = new QueryPipeline(NetworkExecutors.getSharedExecutor());
+    pipeline.setParserThreads(3);
+    pipeline.setQueueCapacity(5);
+  }
+
+  private static PagedIssueIterator issues(int count) {
+    return issues(count, Integer.MAX_VALUE, NetworkExecutors.getSharedExecutor());
+  }
+
+  /**
+   * @param serverPageSize limit of the server, pages are never longer
+   * @param executor executor reading pages ahead, null to read them on demand
+   */
+  private static PagedIssueIterator issues(final int count, final int serverPageSize,
+      Executor executor) {
+    return new PagedIssueIterator(new PagedIssueIterator.PageSource() {
+      @Override
+      public int readPage(int after, int max, Consumer<YouTrackIssue> consumer) {
+        int end = Math.min(count, after + Math.min(max, serverPageSize));
+        for (int i = after; i < end; i++) {
+          consumer.accept(new YouTrackIssue("P-" + i));
+        }
+        return Math.max(0, end - after);
+      }
+    }, 20, -1, executor);
+  }
+
+  private final QueryPipeline.Parser parser = new QueryPipeline.Parser() {
+    @Override
+    public TaskData parse(YouTrackIssue issue) throws CoreException {
+      return new TaskData(new TaskAttributeMapper(repository), "youtrack", URL, issue.getId());
+    }
+  };
+
+  public void testAllIssuesCollected() throws Exception {
+    final Set<String> ids = new HashSet<String>();
+    final Set<Thread> threads = new HashSet<Thread>();
+    pipeline.run(issues(500), parser, new TaskDataCollector() {
+      @Override
+      public void accept(TaskData taskData) {
+        ids.add(taskData.getTaskId());
+        threads.add(Thread.currentThread());
+      }
+    }, new NullProgressMonitor());
+    assertEquals(500, ids.size());
+    assertEquals(1, threads.size());
+    assertTrue(threads.contains(Thread.currentThread()));
+    assertEquals(500, pipeline.getFetchTimings().getItemCount());
+    assertEquals(500, pipeline.getParseTimings().getItemCount());
+    assertEquals(500, pipeline.getCollectTimings().getItemCount());
+    assertTrue(pipeline.format(), pipeline.format().startsWith("Query pipeline: 1 runs"));
+  }
+
+  public void testServerPageLimit() throws Exception {
+    final Set<String> ids = new HashSet<String>();
+    PagedIssueIterator issues = issues(95, 7, NetworkExecutors.getSharedExecutor());
+    pipeline.run(issues, parser, new TaskDataCollector() {
+      @Override
+      public void accept(TaskData taskData) {
+        ids.add(taskData.getTaskId());
+      }
+    }, new NullProgressMonitor());
+    assertEquals(95, ids.size());
+    assertTrue(ids.contains("P-94"));
+    // 13 pages of 7 and one of 4, shorter than the limit
+    assertEquals(14, issues.getPagesFetched());
+  }
+
+  public void testPagesReadOnDemand() throws Exception {
+    PagedIssueIterator issues = issues(45, 7, null);
+    int count = 0;
+    while (issues.hasNext()) {
+      assertEquals("P-" + count, issues.next().getId());
+      count++;
+    }
+    assertEquals(45, count);
+    // 6 pages of 7 and one of 3
+    assertEquals(7, issues.getPagesFetched());
+  }
+
+  public void testParserFailure() throws Exception {
+    try {
+      pipeline.run(issues(500), new QueryPipeline.Parser() {
+        @Override
+        public TaskData parse(YouTrackIssue issue) throws CoreException {
+          if (issue.getId().equals("P-250")) {
+            throw new IllegalStateException("broken issue");
+          }
+          return parser.parse(issue);
+        }
+      }, new TaskDataCollector() {
+        @Override
+        public void accept(TaskData taskData) {}
+      }, new NullProgressMonitor());
+      fail("failure of parser must be reported");
+    } catch (CoreException e) {
+      assertTrue(e.getStatus().getException() instanceof IllegalStateException);
+    }
+  }
+
+  public void testCancel() throws Exception {
+    final NullProgressMonitor monitor = new NullProgressMonitor();
+    final int[] collected = {0};
+    try {
+      pipeline.run(issues(100000), parser, new TaskDataCollector() {
+        @Override
+        public void accept(TaskData taskData) {
+          if (++collected[0] == 10) {
+            monitor.setCanceled(true);
+          }
+        }
+      }, monitor);
+      fail("run must stop when monitor is cancelled");
+    } catch (OperationCanceledException e) {
+      assertEquals(10, collected[0]);
+      // bounded queues keep the fetch stage close to the consumer
+      assertTrue(pipeline.getFetchTimings().getItemCount() < 1000);
+    }
+  }
+
+}
@@ -0,0 +1,169 @@
+package com.jetbrains.mylyn.yt.tests;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import com.jetbrains.youtrack.javarest.client.UserBundleResolver;
+import com.jetbrains.youtrack.javarest.client.YouTrackClient;
+import com.jetbrains.youtrack.javarest.utils.UserBundleValues;
+import com.jetbrains.youtrack.javarest.utils.UserValue;
+import com.sun.jersey.api.client.Client;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Resolves a user bundle against a local stub server: bundle with one user and two groups, groups
+ * are listed in pages of 10 users.
+ */
+public class UserBundleResolverTest extends TestCase {
+
+  private static final int PAGE_SIZE = 10;
+
+  private static final int DEVELOPERS = 25;
+
+  private static final int TESTERS = 10;
+
+  private HttpServer server;
+
+  private ExecutorService serverExecutor;
+
+  private YouTrackClient client;
+
+  private final AtomicInteger userRequests = new AtomicInteger();
+
+  /** login the server answers 403 for */
+  private volatile String forbiddenUser;
+
+  @Override
+  protected void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    serverExecutor = Executors.newCachedThreadPool();
+    server.setExecutor(serverExecutor);
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String response;
+        if (path.startsWith("/rest/admin/customfield/userBundle/")) {
+          response =
+              "<userBundle name=\"Assignees\"><user login=\"root\"/>"
+                  + "<userGroup name=\"developers\"/><userGroup name=\"testers\"/></userBundle>";
+        } else if (path.equals("/rest/admin/user")) {
+          Map<String, String> query = parseQuery(exchange.getRequestURI().getQuery());
+          response = groupPage(query.get("group"), Integer.parseInt(query.get("start")));
+        } else if (path.startsWith("/rest/admin/user/")) {
+          userRequests.incrementAndGet();
+          String login = path.substring("/rest/admin/user/".length());
+          if (login.equals(forbiddenUser)) {
+            exchange.sendResponseHeaders(403, -1);
+            exchange.close();
+            return;
+          }
+          response = "<user login=\"" + login + "\" fullName=\"Full " + login + "\"/>";
+        } else {
+          exchange.sendResponseHeaders(404, -1);
+          exchange.close();
+          return;
+        }
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+      }
+    });
+    server.start();
+    client =
+        new YouTrackClient(Client.create().resource(
+            "http://localhost:" + server.getAddress().getPort() + "/rest"));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    server.stop(0);
+    serverExecutor.shutdownNow();
+  }
+
+  private static Map<String, String> parseQuery(String query) {
+    Map<String, String> params = new HashMap<String, String>();
+    for (String param : query.split("&")) {
+      int eq = param.indexOf('=');
+      params.put(param.substring(0, eq), param.substring(eq + 1));
+    }
+    return params;
+  }
+
+  /**
+   * Developers are dev0 .. dev24, testers are dev0, dev2 .. dev8 and qa5 .. qa9.
+   */
+  private static String groupPage(String group, int start) {
+    int size = group.equals("developers") ? DEVELOPERS : TESTERS;
+    StringBuilder page = new StringBuilder("<userRefs>");
+    for (int i = start; i < Math.min(size, start + PAGE_SIZE); i++) {
+      String login = group.equals("developers") ? "dev" + i : i < 5 ? "dev" + i * 2 : "qa" + i;
+      page.append("<user login=\"" + login + "\"/>");
+    }
+    return page.append("</userRefs>").toString();
+  }
+
+  private static Map<String, UserValue> byLogin(UserBundleValues bundle) {
+    Map<String, UserValue> users = new HashMap<String, UserValue>();
+    for (UserValue user : bundle.getFullUsers()) {
+      assertNull(user.getValue(), users.put(user.getValue(), user));
+    }
+    return users;
+  }
+
+  public void testGroupPages() throws Exception {
+    Map<String, UserValue> users = byLogin(client.getAllUserBundleValues("Assignees"));
+    // root, 25 developers and 5 testers which are not developers
+    assertEquals(31, users.size());
+    assertEquals("Full root", users.get("root").getFullName());
+    assertEquals("Full dev24", users.get("dev24").getFullName());
+    assertEquals("Full qa9", users.get("qa9").getFullName());
+
+    UserBundleResolver resolver = client.getUserBundleResolver();
+    // developers: 3 pages, testers: a full page and an empty one, plus pages read ahead
+    assertTrue(resolver.getPageRequestCount() >= 5);
+    assertTrue(resolver.getPageRequestCount() <= 5 + UserBundleResolver.DEFAULT_PARALLELISM);
+    assertEquals(31, resolver.getUserRequestCount());
+    assertEquals(31, userRequests.get());
+  }
+
+  public void testKnownUsersNotRequested() throws Exception {
+    client.getAllUserBundleValues("Assignees");
+    userRequests.set(0);
+    Map<String, UserValue> users = byLogin(client.getAllUserBundleValues("Assignees"));
+    assertEquals(31, users.size());
+    assertEquals(0, userRequests.get());
+    assertEquals(31, client.getUserBundleResolver().getKnownUserHitCount());
+  }
+
+  public void testFailedUserKeepsLogin() throws Exception {
+    forbiddenUser = "dev7";
+    Map<String, UserValue> users = byLogin(client.getAllUserBundleValues("Assignees"));
+    assertEquals(31, users.size());
+    assertNull(users.get("dev7").getFullName());
+    assertEquals("Full dev8", users.get("dev8").getFullName());
+    assertEquals(1, client.getUserBundleResolver().getFailedUserCount());
+
+    // failed user is requested again next time
+    forbiddenUser = null;
+    userRequests.set(0);
+    users = byLogin(client.getAllUserBundleValues("Assignees"));
+    assertEquals(1, userRequests.get());
+    assertEquals("Full dev7", users.get("dev7").getFullName());
+  }
+
+}
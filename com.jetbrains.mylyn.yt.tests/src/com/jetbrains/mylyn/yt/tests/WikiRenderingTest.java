@@ -0,0 +1,85 @@
+package com.jetbrains.mylyn.yt.tests;
+
+import java.util.LinkedList;
+
+import junit.framework.TestCase;
+
+import org.eclipse.mylyn.tasks.core.TaskRepository;
+import org.eclipse.mylyn.tasks.core.data.TaskAttribute;
+import org.eclipse.mylyn.tasks.core.data.TaskAttributeMapper;
+import org.eclipse.mylyn.tasks.core.data.TaskCommentMapper;
+import org.eclipse.mylyn.tasks.core.data.TaskData;
+
+import com.jetbrains.mylyn.yt.core.YouTrackTaskDataHandler;
+import com.jetbrains.youtrack.javarest.client.YouTrackComment;
+import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
+
+/**
+ * Applies wiki rendering to task data read in lazy mode, no server needed.
+ */
+public class WikiRenderingTest extends TestCase {
+
+  private static final String URL = "http://localhost/youtrack";
+
+  private TaskData taskData;
+
+  @Override
+  protected void setUp() throws Exception {
+    taskData =
+        new TaskData(new TaskAttributeMapper(new TaskRepository("youtrack", URL)), "youtrack",
+            URL, "P-1");
+    taskData.getRoot().createAttribute(YouTrackTaskDataHandler.WIKIFY_DESCRIPTION)
+        .setValue("plain description");
+    taskData.getRoot().createAttribute(YouTrackTaskDataHandler.WIKI_PENDING)
+        .setValue(Boolean.TRUE.toString());
+    addComment(0, "1-1", "plain first");
+    addComment(1, "1-2", "plain second");
+    addComment(2, "1-3", "plain third");
+  }
+
+  private void addComment(int index, String id, String text) {
+    TaskCommentMapper mapper = new TaskCommentMapper();
+    mapper.setCommentId(id);
+    mapper.setNumber(index + 1);
+    mapper.setText(text);
+    TaskAttribute attribute =
+        taskData.getRoot().createAttribute(TaskAttribute.PREFIX_COMMENT + index);
+    attribute.getMetaData().setType(TaskAttribute.TYPE_COMMENT);
+    mapper.applyTo(attribute);
+  }
+
+  private static YouTrackComment comment(String id, String text) {
+    YouTrackComment comment = new YouTrackComment();
+    comment.setId(id);
+    comment.setText(text);
+    return comment;
+  }
+
+  private String commentText(int index) {
+    return taskData.getRoot().getAttribute(TaskAttribute.PREFIX_COMMENT + index)
+        .getMappedAttribute(TaskAttribute.COMMENT_TEXT).getValue();
+  }
+
+  public void testCommentsMatchedById() {
+    // second comment was deleted and a new one added since task data was read
+    YouTrackIssue wikifyIssue = new YouTrackIssue();
+    wikifyIssue.addSingleField(YouTrackIssue.PROJECT_DESCRIPTION_FIELD, "<p>description</p>");
+    LinkedList<YouTrackComment> comments = new LinkedList<YouTrackComment>();
+    comments.add(comment("1-1", "<p>first</p>"));
+    comments.add(comment("1-3", "<p>third</p>"));
+    comments.add(comment("1-4", "<p>fourth</p>"));
+    wikifyIssue.setComments(comments);
+
+    assertTrue(YouTrackTaskDataHandler.isWikiRenderingPending(taskData));
+    YouTrackTaskDataHandler.applyWikiRendering(taskData, wikifyIssue);
+
+    assertFalse(YouTrackTaskDataHandler.isWikiRenderingPending(taskData));
+    assertEquals("<p>description</p>",
+        taskData.getRoot().getAttribute(YouTrackTaskDataHandler.WIKIFY_DESCRIPTION).getValue());
+    assertEquals("<p>first</p>", commentText(0));
+    assertEquals("plain second", commentText(1));
+    assertEquals("<p>third</p>", commentText(2));
+    assertNull(taskData.getRoot().getAttribute(TaskAttribute.PREFIX_COMMENT + 3));
+  }
+
+}
@@ -0,0 +1,73 @@
+package com.jetbrains.mylyn.yt.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+
+import javax.ws.rs.core.MediaType;
+
+import junit.framework.TestCase;
+
+import com.jetbrains.youtrack.javarest.client.JaxbBindings;
+import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
+
+/**
+ * Prints per-issue parse time of XML and JSON representations of the same recorded issue. Not part
+ * of {@link AllYouTrackTests}, {@link WireFormatTest} checks the results.
+ */
+public class WireFormatBenchmarkTest extends TestCase {
+
+  private static final int WARMUP = 50;
+
+  private static final int ITERATIONS = 500;
+
+  private byte[] issueXml;
+
+  private byte[] issueJson;
+
+  @Override
+  protected void setUp() throws Exception {
+    issueXml =
+        Files.readAllBytes(new File("src/com/jetbrains/mylyn/yt/tests/test_issue.xml").toPath());
+    issueJson =
+        Files.readAllBytes(new File("src/com/jetbrains/mylyn/yt/tests/test_issue.json").toPath());
+  }
+
+  private interface Parser {
+    YouTrackIssue parse() throws Exception;
+  }
+
+  private final Parser xmlParser = new Parser() {
+    @Override
+    public YouTrackIssue parse() throws Exception {
+      return JaxbBindings.unmarshal(new ByteArrayInputStream(issueXml), YouTrackIssue.class);
+    }
+  };
+
+  private final Parser jsonParser = new Parser() {
+    @Override
+    public YouTrackIssue parse() throws Exception {
+      return JaxbBindings.unmarshalJson(new ByteArrayInputStream(issueJson),
+          MediaType.APPLICATION_JSON_TYPE, YouTrackIssue.class);
+    }
+  };
+
+  private long measure(Parser parser, int iterations) throws Exception {
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      parser.parse();
+    }
+    return (System.nanoTime() - start) / iterations / 1000;
+  }
+
+  private void benchmark(String name, Parser parser) throws Exception {
+    measure(parser, WARMUP);
+    System.out.println("Parse " + name + ": " + measure(parser, ITERATIONS) + " us per issue");
+  }
+
+  public void testParseTime() throws Exception {
+    benchmark("XML", xmlParser);
+    benchmark("JSON", jsonParser);
+  }
+
+}
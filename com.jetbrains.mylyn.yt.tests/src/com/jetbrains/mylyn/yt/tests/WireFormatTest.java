@@ -0,0 +1,63 @@
+package com.jetbrains.mylyn.yt.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.MediaType;
+
+import junit.framework.TestCase;
+
+import com.jetbrains.youtrack.javarest.client.JaxbBindings;
+import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
+
+/**
+ * XML and JSON representations of the same recorded issue are bound to the same model, JSON
+ * payload is smaller.
+ */
+public class WireFormatTest extends TestCase {
+
+  private byte[] issueXml;
+
+  private byte[] issueJson;
+
+  @Override
+  protected void setUp() throws Exception {
+    issueXml =
+        Files.readAllBytes(new File("src/com/jetbrains/mylyn/yt/tests/test_issue.xml").toPath());
+    issueJson =
+        Files.readAllBytes(new File("src/com/jetbrains/mylyn/yt/tests/test_issue.json").toPath());
+  }
+
+  private static int gzipSize(byte[] payload) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(out);
+    gzip.write(payload);
+    gzip.close();
+    return out.size();
+  }
+
+  public void testSameModel() throws Exception {
+    YouTrackIssue fromXml =
+        JaxbBindings.unmarshal(new ByteArrayInputStream(issueXml), YouTrackIssue.class);
+    YouTrackIssue fromJson =
+        JaxbBindings.unmarshalJson(new ByteArrayInputStream(issueJson),
+            MediaType.APPLICATION_JSON_TYPE, YouTrackIssue.class);
+    fromXml.mapFields();
+    fromJson.mapFields();
+    assertEquals(fromXml.getId(), fromJson.getId());
+    assertEquals(fromXml.getSummary(), fromJson.getSummary());
+    assertEquals(fromXml.getDescription(), fromJson.getDescription());
+    assertEquals(fromXml.getCustomFieldsValues(), fromJson.getCustomFieldsValues());
+    assertEquals(fromXml.getStringTags(), fromJson.getStringTags());
+    assertEquals(fromXml.getComments().size(), fromJson.getComments().size());
+  }
+
+  public void testPayloadSize() throws Exception {
+    assertTrue(issueJson.length < issueXml.length);
+    assertTrue(gzipSize(issueJson) < gzipSize(issueXml));
+  }
+
+}
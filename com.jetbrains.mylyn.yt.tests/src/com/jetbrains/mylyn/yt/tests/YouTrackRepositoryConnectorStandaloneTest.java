@@ -27,6 +27,8 @@ import org.eclipse.mylyn.tasks.core.data.TaskDataCollector;
 import com.jetbrains.mylyn.yt.core.YouTrackCorePlugin;
 import com.jetbrains.mylyn.yt.core.YouTrackRepositoryConnector;
 import com.jetbrains.mylyn.yt.core.YouTrackTaskDataHandler;
+import com.jetbrains.youtrack.javarest.client.ClientMetrics;
+import com.jetbrains.youtrack.javarest.client.IssueConflictException;
 import com.jetbrains.youtrack.javarest.client.YouTrackClient;
 import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
 
@@ -187,4 +189,89 @@ public class YouTrackRepositoryConnectorStandaloneTest extends TestCase {
     assertTrue(taskData.getRoot().getAttribute(TaskAttribute.PRIORITY).getValue()
         .equals(taskDataNew.getRoot().getAttribute(TaskAttribute.PRIORITY).getValue()));
   }
+
+  public void testQueryRequestCount() throws Exception {
+    String summary = "Summary for testQueryRequestCount " + new Date().getTime();
+    for (int i = 0; i < 3; i++) {
+      YouTrackFixture.current().createTask(summary, null);
+    }
+    RepositoryQuery query =
+        new RepositoryQuery(repository.getConnectorKind(), "handle-testQueryRequestCount");
+    query.setAttribute(YouTrackCorePlugin.QUERY_KEY_FILTER, "project: "
+        + YouTrackTestConstants.TEST_PROJECT_NAME + " summary: \"" + summary + "\"");
+    final Map<String, TaskData> results = new HashMap<String, TaskData>();
+    TaskDataCollector collector = new TaskDataCollector() {
+      @Override
+      public void accept(TaskData taskData) {
+        results.put(taskData.getTaskId(), taskData);
+      }
+    };
+    ClientMetrics metrics = YouTrackRepositoryConnector.getClientMetrics(repository);
+    YouTrackTaskDataHandler taskDataHandler =
+        (YouTrackTaskDataHandler) connector.getTaskDataHandler();
+    try {
+      // lazy: a short page and an empty one which ends the query, no count and no request per
+      // issue
+      repository.setProperty(YouTrackCorePlugin.REPOSITORY_KEY_WIKI_RENDERING,
+          YouTrackTaskDataHandler.WikiRendering.LAZY.name());
+      metrics.reset();
+      connector.performQuery(repository, query, collector, null, new NullProgressMonitor());
+      assertEquals(3, results.size());
+      assertEquals(2, metrics.getEndpoint("getIssuesByFilter").getCallCount());
+      assertNull(metrics.getEndpoint("getIssue"));
+      assertNull(metrics.getEndpoint("getNumberOfIssues"));
+      TaskData lazyTaskData = results.values().iterator().next();
+      assertNotNull(lazyTaskData.getRoot().getAttribute(YouTrackTaskDataHandler.WIKI_PENDING));
+
+      // eager: one more request per issue
+      repository.setProperty(YouTrackCorePlugin.REPOSITORY_KEY_WIKI_RENDERING,
+          YouTrackTaskDataHandler.WikiRendering.EAGER.name());
+      metrics.reset();
+      results.clear();
+      connector.performQuery(repository, query, collector, null, new NullProgressMonitor());
+      assertEquals(3, results.size());
+      assertEquals(2, metrics.getEndpoint("getIssuesByFilter").getCallCount());
+      assertEquals(3, metrics.getEndpoint("getIssue").getCallCount());
+
+      // editor loads rendering of lazy task data once
+      assertTrue(taskDataHandler.loadWikiRendering(repository, lazyTaskData));
+      assertNull(lazyTaskData.getRoot().getAttribute(YouTrackTaskDataHandler.WIKI_PENDING));
+      assertFalse(taskDataHandler.loadWikiRendering(repository, lazyTaskData));
+    } finally {
+      repository.removeProperty(YouTrackCorePlugin.REPOSITORY_KEY_WIKI_RENDERING);
+    }
+  }
+
+  public void testConflictingUpdate() throws Exception {
+    TaskData taskData = YouTrackFixture.current().createTask(null, null);
+    String issueId = YouTrackRepositoryConnector.getYoutrackIssueId(taskData.getTaskId());
+    YouTrackIssue loaded = client.getIssue(issueId);
+    long updated = Long.parseLong(loaded.getSingleField("updated"));
+
+    // server accepts a command conditional on the state just loaded
+    client.applyCommand(issueId, "tag conflict-check", new Date(updated));
+
+    // somebody else changes the issue: If-Unmodified-Since has seconds only, so wait for the next
+    Thread.sleep(1000);
+    client.applyCommand(issueId, "remove tag conflict-check");
+    assertTrue(Long.parseLong(client.getIssue(issueId).getSingleField("updated")) > updated);
+    try {
+      client.applyCommand(issueId, "tag conflict-check", new Date(updated));
+      fail("Server must reject a command conditional on an outdated state.");
+    } catch (IssueConflictException e) {
+      assertEquals(issueId, e.getIssueId());
+    }
+
+    // update of the outdated state is rejected before anything is written
+    loaded = client.getIssue(issueId);
+    YouTrackIssue edited = client.getIssue(issueId);
+    edited.addSingleField(YouTrackIssue.PROJECT_SUMMARY_FIELD, "Summary for testConflictingUpdate");
+    try {
+      client.updateIssue(issueId, loaded, edited, updated);
+      fail("Update of an issue changed on server must be rejected.");
+    } catch (IssueConflictException e) {
+      assertEquals(issueId, e.getIssueId());
+    }
+    assertFalse("Summary for testConflictingUpdate".equals(client.getIssue(issueId).getSummary()));
+  }
 }
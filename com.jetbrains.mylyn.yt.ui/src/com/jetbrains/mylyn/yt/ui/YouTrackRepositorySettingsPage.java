@@ -5,6 +5,8 @@
 package com.jetbrains.mylyn.yt.ui;
 
 import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
@@ -12,19 +14,29 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.dialogs.IMessageProvider;
+import org.eclipse.jface.layout.GridDataFactory;
 import org.eclipse.mylyn.tasks.core.RepositoryTemplate;
 import org.eclipse.mylyn.tasks.core.TaskRepository;
 import org.eclipse.mylyn.tasks.ui.TasksUi;
 import org.eclipse.mylyn.tasks.ui.wizards.AbstractRepositorySettingsPage;
 import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Text;
 
 import com.jetbrains.mylyn.yt.core.YouTrackCorePlugin;
 import com.jetbrains.mylyn.yt.core.YouTrackRepositoryConnector;
+import com.jetbrains.youtrack.javarest.client.WireLoggingFilter;
 import com.jetbrains.youtrack.javarest.client.YouTrackClient;
+import com.jetbrains.youtrack.javarest.client.YouTrackClientSettings;
 
 public class YouTrackRepositorySettingsPage extends AbstractRepositorySettingsPage {
 
@@ -41,6 +53,14 @@ public class YouTrackRepositorySettingsPage extends AbstractRepositorySettingsPa
 
   private static final String DEFAULT_MESSAGE = "";
 
+  private static final String INVALID_NUMBER = "Connection settings must be non-negative numbers.";
+
+  private final Map<String, Button> booleanSettings = new LinkedHashMap<String, Button>();
+
+  private final Map<String, Text> numberSettings = new LinkedHashMap<String, Text>();
+
+  private Combo wireLogModeCombo;
+
   public YouTrackRepositorySettingsPage(TaskRepository taskRepository) {
     super(PAGE_TITLE, DEFAULT_MESSAGE, taskRepository);
     setNeedsAnonymousLogin(true);
@@ -57,6 +77,17 @@ public class YouTrackRepositorySettingsPage extends AbstractRepositorySettingsPa
     super.applyTo(repository);
     String location = getLocation(repository).getAbsolutePath();
     repository.setProperty(YouTrackCorePlugin.REPOSITORY_KEY_PATH, location);
+    for (Map.Entry<String, Button> setting : booleanSettings.entrySet()) {
+      repository.setProperty(setting.getKey(), String.valueOf(setting.getValue().getSelection()));
+    }
+    for (Map.Entry<String, Text> setting : numberSettings.entrySet()) {
+      repository.setProperty(setting.getKey(), setting.getValue().getText().trim());
+    }
+    if (wireLogModeCombo != null) {
+      repository.setProperty(YouTrackCorePlugin.REPOSITORY_KEY_WIRE_LOG_MODE,
+          wireLogModeCombo.getText());
+    }
+    YouTrackRepositoryConnector.resetClient(repository);
   }
 
   private File getLocation(TaskRepository repository) {
@@ -65,7 +96,108 @@ public class YouTrackRepositorySettingsPage extends AbstractRepositorySettingsPa
   }
 
   @Override
-  protected void createAdditionalControls(Composite parent) {}
+  protected void createAdditionalControls(Composite parent) {
+    YouTrackClientSettings settings =
+        repository != null
+            ? YouTrackRepositoryConnector.getClientSettings(repository)
+            : new YouTrackClientSettings();
+
+    Group transportGroup = createSettingsGroup(parent, "HTTP Connections");
+
+    createBooleanSetting(transportGroup, "Use pooled keep-alive connections",
+        YouTrackCorePlugin.REPOSITORY_KEY_POOLED_TRANSPORT, settings.isPooledTransport());
+    createBooleanSetting(transportGroup, "Request compressed responses (gzip, deflate)",
+        YouTrackCorePlugin.REPOSITORY_KEY_COMPRESSION, settings.isCompression());
+
+    createNumberSetting(transportGroup, "Max connections per host:",
+        YouTrackCorePlugin.REPOSITORY_KEY_MAX_CONNECTIONS_PER_HOST,
+        settings.getMaxConnectionsPerHost());
+    createNumberSetting(transportGroup, "Max connections total:",
+        YouTrackCorePlugin.REPOSITORY_KEY_MAX_TOTAL_CONNECTIONS, settings.getMaxTotalConnections());
+    createNumberSetting(transportGroup, "Keep-alive TTL (ms):",
+        YouTrackCorePlugin.REPOSITORY_KEY_KEEP_ALIVE_TTL, settings.getKeepAliveTtl());
+    createNumberSetting(transportGroup, "Connect timeout (ms):",
+        YouTrackCorePlugin.REPOSITORY_KEY_CONNECT_TIMEOUT, settings.getConnectTimeout());
+    createNumberSetting(transportGroup, "Read timeout (ms):",
+        YouTrackCorePlugin.REPOSITORY_KEY_READ_TIMEOUT, settings.getReadTimeout());
+    createNumberSetting(transportGroup, "Attempts of failed reads:",
+        YouTrackCorePlugin.REPOSITORY_KEY_RETRY_ATTEMPTS, settings.getRetryMaxAttempts());
+    createNumberSetting(transportGroup, "Failures before pausing requests:",
+        YouTrackCorePlugin.REPOSITORY_KEY_BREAKER_THRESHOLD, settings.getBreakerFailureThreshold());
+    createNumberSetting(transportGroup, "Issues per request:",
+        YouTrackCorePlugin.REPOSITORY_KEY_ISSUE_PAGE_SIZE, settings.getIssuePageSize());
+
+    Group cacheGroup = createSettingsGroup(parent, "Schema Cache");
+    createBooleanSetting(cacheGroup, "Revalidate project and bundle responses (ETag, Last-Modified)",
+        YouTrackCorePlugin.REPOSITORY_KEY_HTTP_CACHE, settings.isHttpCache());
+    createBooleanSetting(cacheGroup, "Spill evicted responses to disk",
+        YouTrackCorePlugin.REPOSITORY_KEY_HTTP_CACHE_SPILL, settings.getHttpCacheDirectory() != null);
+    createNumberSetting(cacheGroup, "Max cached responses:",
+        YouTrackCorePlugin.REPOSITORY_KEY_HTTP_CACHE_MAX_ENTRIES, settings.getHttpCacheMaxEntries());
+
+    Group wireLogGroup = createSettingsGroup(parent, "Wire Log");
+    new Label(wireLogGroup, SWT.NONE).setText("Log HTTP traffic:");
+    wireLogModeCombo = new Combo(wireLogGroup, SWT.READ_ONLY);
+    for (WireLoggingFilter.Mode mode : WireLoggingFilter.Mode.values()) {
+      wireLogModeCombo.add(mode.name());
+    }
+    wireLogModeCombo.setText(settings.getWireLogMode().name());
+    createNumberSetting(wireLogGroup, "Body limit (bytes):",
+        YouTrackCorePlugin.REPOSITORY_KEY_WIRE_LOG_BODY_LIMIT, settings.getWireLogBodyLimit());
+    createNumberSetting(wireLogGroup, "Log bodies of every n-th request:",
+        YouTrackCorePlugin.REPOSITORY_KEY_WIRE_LOG_SAMPLE_RATE, settings.getWireLogSampleRate());
+  }
+
+  private Group createSettingsGroup(Composite parent, String title) {
+    Group group = new Group(parent, SWT.NONE);
+    group.setText(title);
+    group.setLayout(new GridLayout(2, false));
+    int columns =
+        parent.getLayout() instanceof GridLayout
+            ? ((GridLayout) parent.getLayout()).numColumns
+            : 1;
+    GridDataFactory.fillDefaults().grab(true, false).span(columns, 1).applyTo(group);
+    return group;
+  }
+
+  private Button createBooleanSetting(Composite parent, String label, String key, boolean value) {
+    Button button = new Button(parent, SWT.CHECK);
+    button.setText(label);
+    button.setSelection(value);
+    GridDataFactory.fillDefaults().span(2, 1).applyTo(button);
+    booleanSettings.put(key, button);
+    return button;
+  }
+
+  private Text createNumberSetting(Composite parent, String label, String key, int value) {
+    new Label(parent, SWT.NONE).setText(label);
+    Text text = new Text(parent, SWT.BORDER);
+    text.setText(String.valueOf(value));
+    GridDataFactory.fillDefaults().grab(true, false).applyTo(text);
+    text.addModifyListener(new ModifyListener() {
+      @Override
+      public void modifyText(ModifyEvent e) {
+        if (getContainer() != null) {
+          getContainer().updateButtons();
+        }
+      }
+    });
+    numberSettings.put(key, text);
+    return text;
+  }
+
+  private boolean isValidNumberSettings() {
+    for (Text text : numberSettings.values()) {
+      try {
+        if (Integer.parseInt(text.getText().trim()) < 0) {
+          return false;
+        }
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
+    return true;
+  }
 
   @Override
   public String getConnectorKind() {
@@ -186,6 +318,9 @@ public class YouTrackRepositorySettingsPage extends AbstractRepositorySettingsPa
           && isMissingCredentials()) {
         errorMessage = ENTER_VALID_USER_AND_PASSWORD;
       }
+      if (errorMessage == null && !isValidNumberSettings()) {
+        errorMessage = INVALID_NUMBER;
+      }
       setMessage(errorMessage, repository == null ? IMessageProvider.NONE : IMessageProvider.ERROR);
     } else {
       setMessage(errorMessage, IMessageProvider.ERROR);
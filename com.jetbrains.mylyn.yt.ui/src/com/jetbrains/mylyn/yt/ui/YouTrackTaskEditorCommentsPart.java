@@ -317,6 +317,8 @@ public class YouTrackTaskEditorCommentsPart extends AbstractTaskEditorPart {
 
     private AbstractAttributeEditor editor;
 
+    private Browser browser;
+
     public CommentViewer(TaskAttribute commentAttribute) {
       this.commentAttribute = commentAttribute;
       this.taskComment =
@@ -347,14 +349,11 @@ public class YouTrackTaskEditorCommentsPart extends AbstractTaskEditorPart {
       commentTextComposite.setLayout(new GridLayout(1, false));
 
 
-      final Browser browser = new Browser(commentTextComposite, SWT.NO_SCROLL);
+      browser = new Browser(commentTextComposite, SWT.NO_SCROLL);
       final GridData gd = EditorUtil.getTextControlLayoutData(getTaskEditorPage(), browser, true);
       gd.heightHint = 1;
       browser.setLayoutData(gd);
-      TaskAttribute textAttribute =
-          getTaskData().getAttributeMapper()
-              .getAssoctiatedAttribute(taskComment.getTaskAttribute());
-      browser.setText(textAttribute.getValue());
+      refreshText();
 
       browser.addProgressListener(new ProgressListener() {
         @Override
@@ -516,6 +515,16 @@ public class YouTrackTaskEditorCommentsPart extends AbstractTaskEditorPart {
       getTaskEditorPage().selectionChanged(taskComment);
     }
 
+    private void refreshText() {
+      if (browser != null && !browser.isDisposed()) {
+        getTaskData().getAttributeMapper().updateTaskComment(taskComment, commentAttribute);
+        TaskAttribute textAttribute =
+            getTaskData().getAttributeMapper()
+                .getAssoctiatedAttribute(taskComment.getTaskAttribute());
+        browser.setText(textAttribute.getValue());
+      }
+    }
+
     public boolean isExpanded() {
       return commentComposite != null && commentComposite.isExpanded();
     }
@@ -869,6 +878,23 @@ public class YouTrackTaskEditorCommentsPart extends AbstractTaskEditorPart {
     return commentGroupViewers;
   }
 
+  /**
+   * Shows wiki rendering of comments which controls were created for, other comments read it
+   * when they are created.
+   */
+  public void refreshWikiRendering() {
+    if (commentGroupViewers == null) {
+      return;
+    }
+    for (CommentGroupViewer groupViewer : commentGroupViewers) {
+      if (groupViewer.commentViewers != null) {
+        for (CommentViewer commentViewer : groupViewer.commentViewers) {
+          commentViewer.refreshText();
+        }
+      }
+    }
+  }
+
   private void initialize() {
     commentAttributes =
         getTaskData().getAttributeMapper().getAttributesByType(getTaskData(),
@@ -11,16 +11,23 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.SafeRunner;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.IToolBarManager;
 import org.eclipse.jface.layout.GridDataFactory;
 import org.eclipse.jface.viewers.StructuredSelection;
+import org.eclipse.mylyn.commons.core.StatusHandler;
 import org.eclipse.mylyn.internal.tasks.ui.editors.EditorUtil;
 import org.eclipse.mylyn.internal.tasks.ui.editors.TaskEditorOutlineNode;
 import org.eclipse.mylyn.internal.tasks.ui.editors.TaskEditorRichTextPart;
 import org.eclipse.mylyn.tasks.core.IRepositoryElement;
+import org.eclipse.mylyn.tasks.core.data.TaskData;
 import org.eclipse.mylyn.tasks.ui.editors.AbstractTaskEditorPage;
 import org.eclipse.mylyn.tasks.ui.editors.AbstractTaskEditorPart;
 import org.eclipse.mylyn.tasks.ui.editors.AttributeEditorFactory;
@@ -28,10 +35,12 @@ import org.eclipse.mylyn.tasks.ui.editors.TaskEditor;
 import org.eclipse.mylyn.tasks.ui.editors.TaskEditorPartDescriptor;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.actions.BaseSelectionListenerAction;
+import org.eclipse.ui.forms.IFormPart;
 import org.eclipse.ui.forms.IManagedForm;
 
 import com.jetbrains.mylyn.yt.core.YouTrackCorePlugin;
@@ -44,6 +53,7 @@ import com.jetbrains.mylyn.yt.ui.utils.SubmitAction;
 import com.jetbrains.mylyn.yt.ui.utils.SynchronizeEditorAction;
 import com.jetbrains.mylyn.yt.ui.utils.UpdateProjectAction;
 import com.jetbrains.mylyn.yt.ui.utils.WebViewAction;
+import com.jetbrains.youtrack.javarest.client.YouTrackIssue;
 
 public class YouTrackTaskEditorPage extends AbstractTaskEditorPage {
 
@@ -220,6 +230,9 @@ public class YouTrackTaskEditorPage extends AbstractTaskEditorPage {
 
   @Override
   protected void createParts() {
+    // issues read by queries carry plain text until shown here
+    scheduleWikiRendering();
+
     List<TaskEditorPartDescriptor> descriptors =
         new LinkedList<TaskEditorPartDescriptor>(createPartDescriptors());
     // single column
@@ -236,6 +249,59 @@ public class YouTrackTaskEditorPage extends AbstractTaskEditorPage {
     createParts(PATH_COMMENTS, getEditorComposite(), descriptors);
   }
 
+  /**
+   * Parts show plain text until the request returns, then description and comments are updated.
+   * If the request fails, plain text stays.
+   */
+  private void scheduleWikiRendering() {
+    final TaskData taskData = getModel().getTaskData();
+    if (!YouTrackTaskDataHandler.isWikiRenderingPending(taskData)) {
+      return;
+    }
+    final YouTrackTaskDataHandler taskDataHandler =
+        (YouTrackTaskDataHandler) getConnector().getTaskDataHandler();
+    Job job = new Job("Load wiki rendering of " + getTask().getTaskKey()) {
+      @Override
+      protected IStatus run(IProgressMonitor monitor) {
+        try {
+          final YouTrackIssue wikifyIssue =
+              taskDataHandler.getWikiRendering(getTaskRepository(), taskData);
+          if (wikifyIssue != null) {
+            Display.getDefault().asyncExec(new Runnable() {
+              @Override
+              public void run() {
+                showWikiRendering(taskData, wikifyIssue);
+              }
+            });
+          }
+        } catch (CoreException e) {
+          StatusHandler.log(e.getStatus());
+        }
+        return Status.OK_STATUS;
+      }
+    };
+    job.setSystem(true);
+    job.schedule();
+  }
+
+  private void showWikiRendering(TaskData taskData, YouTrackIssue wikifyIssue) {
+    // editor closed or refreshed with other task data meanwhile
+    if (getManagedForm() == null || getManagedForm().getForm().isDisposed()
+        || getModel().getTaskData() != taskData
+        || !YouTrackTaskDataHandler.isWikiRenderingPending(taskData)) {
+      return;
+    }
+    YouTrackTaskDataHandler.applyWikiRendering(taskData, wikifyIssue);
+    for (IFormPart part : getManagedForm().getParts()) {
+      if (part instanceof YouTrackTaskEditorRichTextPart) {
+        ((YouTrackTaskEditorRichTextPart) part).refreshWikiRendering();
+      } else if (part instanceof YouTrackTaskEditorCommentsPart) {
+        ((YouTrackTaskEditorCommentsPart) part).refreshWikiRendering();
+      }
+    }
+    reflow();
+  }
+
   private void createParts(String path, final Composite parent,
       final Collection<TaskEditorPartDescriptor> descriptors) {
     for (Iterator<TaskEditorPartDescriptor> it = descriptors.iterator(); it.hasNext();) {
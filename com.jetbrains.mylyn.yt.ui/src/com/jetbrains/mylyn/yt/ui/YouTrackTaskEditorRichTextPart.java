@@ -45,6 +45,8 @@ public class YouTrackTaskEditorRichTextPart extends AbstractTaskEditorPart {
 
   private Composite composite;
 
+  private Browser browser;
+
   private int sectionStyle;
 
   private Action toggleEditAction;
@@ -84,7 +86,7 @@ public class YouTrackTaskEditorRichTextPart extends AbstractTaskEditorPart {
 
     if (attribute.getMetaData().isReadOnly()) {
 
-      Browser browser = new Browser(composite, SWT.NONE);
+      browser = new Browser(composite, SWT.NONE);
       GridData gd = EditorUtil.getTextControlLayoutData(getTaskEditorPage(), browser, true);
 
       // if (getTaskEditorPage() != null
@@ -102,10 +104,7 @@ public class YouTrackTaskEditorRichTextPart extends AbstractTaskEditorPart {
       // }
 
       browser.setLayoutData(gd);
-      String wikifyDescription =
-          getTaskData().getRoot().getMappedAttribute(YouTrackTaskDataHandler.WIKIFY_DESCRIPTION)
-              .getValue();
-      browser.setText(wikifyDescription);
+      refreshWikiRendering();
     } else {
       editor = (RichTextAttributeEditor) attributeEditor;
       editor.createControl(composite, toolkit);
@@ -121,6 +120,16 @@ public class YouTrackTaskEditorRichTextPart extends AbstractTaskEditorPart {
     setSection(toolkit, section);
   }
 
+  /**
+   * Shows wiki rendering of description in read only mode.
+   */
+  public void refreshWikiRendering() {
+    if (browser != null && !browser.isDisposed()) {
+      browser.setText(getTaskData().getRoot()
+          .getMappedAttribute(YouTrackTaskDataHandler.WIKIFY_DESCRIPTION).getValue());
+    }
+  }
+
   public TaskAttribute getAttribute() {
     return attribute;
   }
@@ -0,0 +1,244 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.core.NewCookie;
+import javax.ws.rs.core.UriBuilder;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Single authentication filter of a client. With credentials it logs in once, sends the session
+ * cookie with every request and on 401 logs in again and replays the request once. With a
+ * permanent token every request carries "Authorization: Bearer" header and no login request is
+ * sent at all. Login request is sent without holding the lock of the filter, concurrent requests
+ * which need a session wait for the same login.
+ */
+public class AuthenticationManager extends ClientFilter {
+
+  public static final String PERMANENT_TOKEN_PREFIX = "perm:";
+
+  private static final String COOKIE = "Cookie";
+
+  private static final String AUTHORIZATION = "Authorization";
+
+  private static final int UNAUTHORIZED = 401;
+
+  private static final int OK = 200;
+
+  private final URI loginUri;
+
+  private final Map<String, String> sessionCookies = new LinkedHashMap<String, String>();
+
+  private String username;
+
+  private String password;
+
+  private String token;
+
+  /** incremented by each successful login, 0 if not logged in */
+  private int sessionGeneration = 0;
+
+  /** login in progress, null if none */
+  private CompletableFuture<Void> pendingLogin;
+
+  private final AtomicLong logins = new AtomicLong();
+
+  private final AtomicLong replays = new AtomicLong();
+
+  public AuthenticationManager(URI loginUri) {
+    this.loginUri = loginUri;
+  }
+
+  public static boolean isPermanentToken(String secret) {
+    return secret != null && secret.startsWith(PERMANENT_TOKEN_PREFIX);
+  }
+
+  /**
+   * Use login and password, session is opened on first request.
+   */
+  public synchronized void setCredentials(String username, String password) {
+    if (username == null || !username.equals(this.username) || password == null
+        || !password.equals(this.password)) {
+      sessionGeneration = 0;
+      sessionCookies.clear();
+    }
+    this.username = username;
+    this.password = password;
+    this.token = null;
+  }
+
+  public synchronized void setToken(String token) {
+    this.token = token;
+    this.username = null;
+    this.password = null;
+    sessionGeneration = 0;
+    sessionCookies.clear();
+  }
+
+  public synchronized boolean isTokenAuthentication() {
+    return token != null;
+  }
+
+  public synchronized boolean hasSession() {
+    return sessionGeneration > 0;
+  }
+
+  /**
+   * Open new session with current credentials.
+   *
+   * @throws RuntimeException if server rejected credentials
+   */
+  public void login() {
+    int generation;
+    synchronized (this) {
+      if (username == null || password == null) {
+        throw new RuntimeException("Failed : NULL username or password ");
+      }
+      generation = sessionGeneration;
+    }
+    renewSession(generation);
+  }
+
+  /**
+   * Login unless session was renewed since given generation. Only one login request is sent at a
+   * time, other callers wait for its result.
+   */
+  private void renewSession(int expiredGeneration) {
+    CompletableFuture<Void> login;
+    String loginName = null;
+    String loginPassword = null;
+    synchronized (this) {
+      if (sessionGeneration != expiredGeneration) {
+        return;
+      }
+      login = pendingLogin;
+      if (login == null) {
+        login = pendingLogin = new CompletableFuture<Void>();
+        loginName = username;
+        loginPassword = password;
+      }
+    }
+    if (loginName == null) {
+      YouTrackAsyncClient.join(login);
+      return;
+    }
+    try {
+      sendLogin(loginName, loginPassword);
+      login.complete(null);
+    } catch (RuntimeException e) {
+      login.completeExceptionally(e);
+      throw e;
+    } finally {
+      synchronized (this) {
+        pendingLogin = null;
+      }
+    }
+  }
+
+  private void sendLogin(String loginName, String loginPassword) {
+    URI uri =
+        UriBuilder.fromUri(loginUri).queryParam("login", loginName)
+            .queryParam("password", loginPassword).build();
+    ClientResponse response = getNext().handle(ClientRequest.create().build(uri, "POST"));
+    try {
+      YouTrackClient.checkClientResponse(response, OK, "Failed to login");
+      if (response.getStatus() != OK) {
+        throw new RuntimeException("Failed to login\nRESPONSE CODE: " + response.getStatus());
+      }
+      synchronized (this) {
+        // credentials changed while login was sent, this session belongs to the old ones
+        if (loginName.equals(username) && loginPassword.equals(password)) {
+          sessionCookies.clear();
+          storeCookies(response);
+          sessionGeneration++;
+        }
+      }
+      logins.incrementAndGet();
+    } finally {
+      response.close();
+    }
+  }
+
+  @Override
+  public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+    boolean relogin;
+    synchronized (this) {
+      relogin = token == null && username != null && password != null;
+    }
+    if (relogin) {
+      renewSession(0);
+    }
+    int generation;
+    synchronized (this) {
+      generation = prepare(request);
+    }
+
+    ClientRequest replay = relogin ? request.clone() : null;
+    ClientResponse response = getNext().handle(request);
+    storeCookies(response);
+    if (response.getStatus() != UNAUTHORIZED || replay == null) {
+      return response;
+    }
+
+    // session expired: login once, unless other request already did it, and send request again
+    response.close();
+    renewSession(generation);
+    synchronized (this) {
+      prepare(replay);
+    }
+    replays.incrementAndGet();
+    response = getNext().handle(replay);
+    storeCookies(response);
+    return response;
+  }
+
+  private int prepare(ClientRequest request) {
+    request.getHeaders().remove(COOKIE);
+    if (token != null) {
+      request.getHeaders().putSingle(AUTHORIZATION, "Bearer " + token);
+    } else if (!sessionCookies.isEmpty()) {
+      StringBuilder cookies = new StringBuilder();
+      for (Map.Entry<String, String> cookie : sessionCookies.entrySet()) {
+        if (cookies.length() > 0) {
+          cookies.append("; ");
+        }
+        cookies.append(cookie.getKey()).append('=').append(cookie.getValue());
+      }
+      request.getHeaders().putSingle(COOKIE, cookies.toString());
+    }
+    return sessionGeneration;
+  }
+
+  private synchronized void storeCookies(ClientResponse response) {
+    for (NewCookie cookie : response.getCookies()) {
+      if (cookie.getMaxAge() == 0) {
+        sessionCookies.remove(cookie.getName());
+      } else {
+        sessionCookies.put(cookie.getName(), cookie.getValue());
+      }
+    }
+  }
+
+  /**
+   * @return number of login requests sent
+   */
+  public long getLoginCount() {
+    return logins.get();
+  }
+
+  /**
+   * @return number of requests sent again after session was renewed
+   */
+  public long getReplayCount() {
+    return replays.get();
+  }
+
+}
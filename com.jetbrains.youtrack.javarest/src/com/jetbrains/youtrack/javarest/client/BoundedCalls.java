@@ -0,0 +1,62 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Fan-out of blocking calls with bounded parallelism. The calling thread waits for a free slot,
+ * executor threads never wait for each other, so nested fan-outs can't deadlock on a small pool.
+ */
+public final class BoundedCalls {
+
+  private BoundedCalls() {
+  }
+
+  /**
+   * Start calls in order, at most parallelism at once. A slot is freed when the call itself
+   * returns, even if its future was completed earlier, e.g. by a timeout.
+   *
+   * @return futures in order of calls
+   */
+  public static <T> List<CompletableFuture<T>> start(List<Supplier<T>> calls, int parallelism,
+      Executor executor) {
+    final Semaphore permits = new Semaphore(Math.max(1, parallelism));
+    List<CompletableFuture<T>> results = new ArrayList<CompletableFuture<T>>(calls.size());
+    try {
+      for (final Supplier<T> call : calls) {
+        permits.acquire();
+        results.add(CompletableFuture.supplyAsync(() -> {
+          try {
+            return call.get();
+          } finally {
+            permits.release();
+          }
+        }, executor));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      for (CompletableFuture<T> result : results) {
+        result.cancel(true);
+      }
+      throw new RuntimeException("Interrupted while wait for requests.", e);
+    }
+    return results;
+  }
+
+  /**
+   * @return results in order of calls
+   * @throws RuntimeException first failure of calls
+   */
+  public static <T> List<T> call(List<Supplier<T>> calls, int parallelism, Executor executor) {
+    List<T> values = new ArrayList<T>(calls.size());
+    for (CompletableFuture<T> result : start(calls, parallelism, executor)) {
+      values.add(YouTrackAsyncClient.join(result));
+    }
+    return values;
+  }
+
+}
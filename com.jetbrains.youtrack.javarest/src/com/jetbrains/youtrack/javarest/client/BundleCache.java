@@ -0,0 +1,238 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.jetbrains.youtrack.javarest.client.YouTrackCustomField.YouTrackCustomFieldType;
+import com.jetbrains.youtrack.javarest.utils.BundleValues;
+
+/**
+ * Bundle values of one repository by bundle kind and name, shared by fields of all projects.
+ * Concurrent requests for the same bundle wait for one load. Size of entries is estimated from
+ * their values, least recently used entries are dropped when the estimate exceeds the limit.
+ * Entries live until invalidated, loads started before an invalidation are not stored.
+ */
+public class BundleCache {
+
+  public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+  private static final int ENTRY_OVERHEAD = 256;
+
+  private static final int VALUE_OVERHEAD = 64;
+
+  private static class CacheEntry {
+
+    private final BundleValues values;
+
+    private final long size;
+
+    private CacheEntry(BundleValues values, long size) {
+      this.values = values;
+      this.size = size;
+    }
+  }
+
+  private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<String, CacheEntry>(
+      16, 0.75f, true);
+
+  private final Map<String, CompletableFuture<BundleValues>> loading =
+      new HashMap<String, CompletableFuture<BundleValues>>();
+
+  private volatile long maxBytes;
+
+  private long bytes = 0;
+
+  private long generation = 0;
+
+  private long hits = 0;
+
+  private long misses = 0;
+
+  private long loads = 0;
+
+  private long evictions = 0;
+
+  public BundleCache() {
+    this(DEFAULT_MAX_BYTES);
+  }
+
+  public BundleCache(long maxBytes) {
+    this.maxBytes = Math.max(0, maxBytes);
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public synchronized void setMaxBytes(long maxBytes) {
+    this.maxBytes = Math.max(0, maxBytes);
+    evict();
+  }
+
+  /**
+   * @param type custom field type, single and multi value fields of a kind share the key
+   * @return null if type has no bundle
+   */
+  public static String key(String type, String name) {
+    YouTrackCustomFieldType fieldType = YouTrackCustomFieldType.getTypeByName(type);
+    if (fieldType == null || name == null) {
+      return null;
+    }
+    switch (fieldType) {
+      case ENUM_SINGLE:
+      case ENUM_MULTI:
+        return "bundle:" + name;
+      case BUILD_SINGLE:
+      case BUILD_MULTI:
+        return "buildBundle:" + name;
+      case OWNED_SINGLE:
+      case OWNED_MULTI:
+        return "ownedFieldBundle:" + name;
+      case STATE:
+        return "stateBundle:" + name;
+      case VERSION_SINGLE:
+      case VERSION_MULTI:
+        return "versionBundle:" + name;
+      case USER_SINGLE:
+      case USER_MULTI:
+        return "userBundle:" + name;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @param loader called if bundle is neither cached nor being loaded, null result isn't cached
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends BundleValues> T get(String type, String name, Supplier<T> loader) {
+    String key = key(type, name);
+    if (key == null) {
+      return loader.get();
+    }
+    CompletableFuture<BundleValues> pending;
+    CompletableFuture<BundleValues> own = null;
+    long loadGeneration;
+    synchronized (this) {
+      CacheEntry entry = entries.get(key);
+      if (entry != null) {
+        hits++;
+        return (T) entry.values;
+      }
+      misses++;
+      loadGeneration = generation;
+      pending = loading.get(key);
+      if (pending == null) {
+        own = new CompletableFuture<BundleValues>();
+        loading.put(key, own);
+        loads++;
+      }
+    }
+    if (own == null) {
+      return (T) YouTrackAsyncClient.join(pending);
+    }
+    try {
+      T values = loader.get();
+      synchronized (this) {
+        if (values != null && loadGeneration == generation) {
+          put(key, values);
+        }
+      }
+      own.complete(values);
+      return values;
+    } catch (RuntimeException e) {
+      own.completeExceptionally(e);
+      throw e;
+    } finally {
+      synchronized (this) {
+        loading.remove(key, own);
+      }
+    }
+  }
+
+  private void put(String key, BundleValues values) {
+    CacheEntry entry = new CacheEntry(values, estimateSize(key, values));
+    CacheEntry old = entries.put(key, entry);
+    if (old != null) {
+      bytes -= old.size;
+    }
+    bytes += entry.size;
+    evict();
+  }
+
+  private void evict() {
+    while (bytes > maxBytes && !entries.isEmpty()) {
+      String eldest = entries.keySet().iterator().next();
+      bytes -= entries.remove(eldest).size;
+      evictions++;
+    }
+  }
+
+  /**
+   * Rough size of values in bytes, strings are counted as two bytes per char.
+   */
+  static long estimateSize(String key, BundleValues values) {
+    long size = ENTRY_OVERHEAD + 2 * key.length();
+    LinkedList<String> strings = values.getValues();
+    if (strings != null) {
+      for (String value : strings) {
+        size += VALUE_OVERHEAD + (value != null ? 2 * value.length() : 0);
+      }
+    }
+    return size;
+  }
+
+  public synchronized void invalidate(String type, String name) {
+    String key = key(type, name);
+    if (key != null) {
+      CacheEntry entry = entries.remove(key);
+      if (entry != null) {
+        bytes -= entry.size;
+      }
+      loading.remove(key);
+      generation++;
+    }
+  }
+
+  public synchronized void invalidateAll() {
+    entries.clear();
+    loading.clear();
+    bytes = 0;
+    generation++;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return estimated size of cached values in bytes
+   */
+  public synchronized long getEstimatedBytes() {
+    return bytes;
+  }
+
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * @return number of bundles requested from server since creation
+   */
+  public synchronized long getLoadCount() {
+    return loads;
+  }
+
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+}
@@ -0,0 +1,103 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops calls to a server which failed several times in a row. After open duration one probe call
+ * is let through: if it succeeds calls are allowed again, otherwise breaker stays open for
+ * another period.
+ */
+public class CircuitBreaker {
+
+  public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+  public static final int DEFAULT_OPEN_DURATION = 30 * 1000;
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  public static class OpenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public OpenException(String message) {
+      super(message);
+    }
+  }
+
+  private final int failureThreshold;
+
+  private final long openDuration;
+
+  private State state = State.CLOSED;
+
+  private int consecutiveFailures = 0;
+
+  private long openedAt;
+
+  private boolean probeInFlight = false;
+
+  private final AtomicLong rejected = new AtomicLong();
+
+  public CircuitBreaker() {
+    this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION);
+  }
+
+  public CircuitBreaker(int failureThreshold, long openDuration) {
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openDuration = Math.max(0, openDuration);
+  }
+
+  /**
+   * Must be called before each call, then {@link #onSuccess()} or {@link #onFailure()} reports its
+   * result.
+   * 
+   * @throws OpenException if the server is considered down
+   */
+  public synchronized void acquire() {
+    if (state == State.OPEN) {
+      long remaining = openedAt + openDuration - System.currentTimeMillis();
+      if (remaining > 0) {
+        rejected.incrementAndGet();
+        throw new OpenException("Server is not available, next attempt in "
+            + (remaining + 999) / 1000 + " s.");
+      }
+      state = State.HALF_OPEN;
+    }
+    if (state == State.HALF_OPEN) {
+      if (probeInFlight) {
+        rejected.incrementAndGet();
+        throw new OpenException("Server is not available, checking connection.");
+      }
+      probeInFlight = true;
+    }
+  }
+
+  public synchronized void onSuccess() {
+    consecutiveFailures = 0;
+    probeInFlight = false;
+    state = State.CLOSED;
+  }
+
+  public synchronized void onFailure() {
+    consecutiveFailures++;
+    probeInFlight = false;
+    if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = System.currentTimeMillis();
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  /**
+   * @return number of calls failed fast without a request
+   */
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+}
@@ -0,0 +1,289 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Calls of one repository by logical endpoint: count, errors, latency histogram and response
+ * size. Filled by {@link MetricsFilter}, read through {@link #getEndpoints()} or dumped
+ * periodically as text by {@link #scheduleDump(long, Consumer)}.
+ */
+public class ClientMetrics {
+
+  public static final long DEFAULT_DUMP_INTERVAL = 10 * 60 * 1000;
+
+  /** upper bounds of latency buckets in milliseconds, the last bucket has no bound */
+  private static final long[] BUCKETS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+  public static class EndpointMetrics {
+
+    private final String name;
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private final AtomicLong totalTime = new AtomicLong();
+
+    private final AtomicLong maxTime = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length + 1);
+
+    EndpointMetrics(String name) {
+      this.name = name;
+    }
+
+    void record(long millis, long size, boolean error) {
+      calls.incrementAndGet();
+      if (error) {
+        errors.incrementAndGet();
+      }
+      totalTime.addAndGet(millis);
+      maxTime.accumulateAndGet(millis, Math::max);
+      bytes.addAndGet(Math.max(0, size));
+      int bucket = 0;
+      while (bucket < BUCKETS.length && millis > BUCKETS[bucket]) {
+        bucket++;
+      }
+      histogram.incrementAndGet(bucket);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getCallCount() {
+      return calls.get();
+    }
+
+    public long getErrorCount() {
+      return errors.get();
+    }
+
+    public double getErrorRate() {
+      long count = calls.get();
+      return count > 0 ? (double) errors.get() / count : 0;
+    }
+
+    /**
+     * @return sum of latencies in milliseconds
+     */
+    public long getTotalTime() {
+      return totalTime.get();
+    }
+
+    public long getMaxTime() {
+      return maxTime.get();
+    }
+
+    /**
+     * @return response bytes read by the client
+     */
+    public long getResponseBytes() {
+      return bytes.get();
+    }
+
+    /**
+     * @return calls per latency bucket, see {@link ClientMetrics#getBucketBounds()}
+     */
+    public long[] getHistogram() {
+      long[] counts = new long[histogram.length()];
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = histogram.get(i);
+      }
+      return counts;
+    }
+
+    /**
+     * @return upper bound of the bucket holding given share of calls, max time for the last one
+     */
+    public long getPercentile(double share) {
+      long[] counts = getHistogram();
+      long total = 0;
+      for (long count : counts) {
+        total += count;
+      }
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (total > 0 && seen >= share * total) {
+          return i < BUCKETS.length ? BUCKETS[i] : getMaxTime();
+        }
+      }
+      return 0;
+    }
+  }
+
+  private final ConcurrentHashMap<String, EndpointMetrics> endpoints =
+      new ConcurrentHashMap<String, EndpointMetrics>();
+
+  private final AtomicLong dumpGeneration = new AtomicLong();
+
+  private volatile long lastDumpedCalls = 0;
+
+  /**
+   * @return upper bounds of latency buckets in milliseconds, the last bucket is unbounded
+   */
+  public static long[] getBucketBounds() {
+    return BUCKETS.clone();
+  }
+
+  public void record(String endpoint, long millis, long size, boolean error) {
+    endpoints.computeIfAbsent(endpoint, EndpointMetrics::new).record(millis, size, error);
+  }
+
+  /**
+   * @return metrics by endpoint name, sorted by name
+   */
+  public Map<String, EndpointMetrics> getEndpoints() {
+    return new TreeMap<String, EndpointMetrics>(endpoints);
+  }
+
+  public EndpointMetrics getEndpoint(String endpoint) {
+    return endpoints.get(endpoint);
+  }
+
+  public long getCallCount() {
+    long count = 0;
+    for (EndpointMetrics metrics : endpoints.values()) {
+      count += metrics.getCallCount();
+    }
+    return count;
+  }
+
+  public void reset() {
+    endpoints.clear();
+  }
+
+  /**
+   * @return one line per endpoint, endpoints with most time spent first
+   */
+  public String format() {
+    List<EndpointMetrics> sorted = new ArrayList<EndpointMetrics>(endpoints.values());
+    Collections.sort(sorted, (a, b) -> Long.compare(b.getTotalTime(), a.getTotalTime()));
+    StringBuilder text = new StringBuilder("YouTrack client metrics:");
+    for (EndpointMetrics m : sorted) {
+      text.append('\n').append(String.format("%-26s %6d calls %5.1f%% errors avg %5d ms"
+          + " p50 %5d ms p95 %5d ms max %6d ms %10d bytes", m.getName(), m.getCallCount(),
+          m.getErrorRate() * 100, m.getCallCount() > 0 ? m.getTotalTime() / m.getCallCount() : 0,
+          m.getPercentile(0.5), m.getPercentile(0.95), m.getMaxTime(), m.getResponseBytes()));
+    }
+    return text.toString();
+  }
+
+  /**
+   * Pass {@link #format()} to sink every interval, intervals without calls are skipped. Replaces
+   * dump scheduled before.
+   */
+  public void scheduleDump(final long interval, final Consumer<String> sink) {
+    final long generation = dumpGeneration.incrementAndGet();
+    if (interval > 0) {
+      scheduleDump(interval, sink, generation);
+    }
+  }
+
+  private void scheduleDump(final long interval, final Consumer<String> sink,
+      final long generation) {
+    CompletableFuture.runAsync(() -> {
+      if (dumpGeneration.get() != generation) {
+        return;
+      }
+      try {
+        long calls = getCallCount();
+        if (calls != lastDumpedCalls) {
+          lastDumpedCalls = calls;
+          sink.accept(format());
+        }
+      } finally {
+        scheduleDump(interval, sink, generation);
+      }
+    }, CompletableFuture.delayedExecutor(interval, TimeUnit.MILLISECONDS));
+  }
+
+  public void stopDump() {
+    dumpGeneration.incrementAndGet();
+  }
+
+  /**
+   * @return name of YouTrackClient call which sends request to given uri
+   */
+  public static String getEndpointName(String method, URI uri) {
+    String path = uri.getPath() != null ? uri.getPath() : "";
+    int rest = path.indexOf("/rest/");
+    if (rest >= 0) {
+      path = path.substring(rest + "/rest".length());
+    }
+    String[] s = path.replaceAll("^/+|/+$", "").split("/+");
+    int n = s.length;
+    if ("issue".equals(s[0])) {
+      if (n == 1) {
+        return "GET".equals(method) ? "getIssuesByFilter" : "putNewIssue";
+      }
+      if ("count".equals(s[1])) {
+        return "getNumberOfIssues";
+      }
+      if ("intellisense".equals(s[1])) {
+        return "intellisense";
+      }
+      if ("byproject".equals(s[1])) {
+        return "getIssuesInProject";
+      }
+      if (n == 2) {
+        if ("GET".equals(method)) {
+          return "getIssue";
+        }
+        return "DELETE".equals(method) ? "deleteIssue" : "updateIssue";
+      }
+      if ("execute".equals(s[2])) {
+        return n > 3 && "intellisense".equals(s[3]) ? "intellisenseCommand" : "applyCommand";
+      }
+      if ("exists".equals(s[2])) {
+        return "issueExist";
+      }
+      if ("comment".equals(s[2])) {
+        return "addComment";
+      }
+    } else if ("admin".equals(s[0]) && n > 1) {
+      if ("project".equals(s[1])) {
+        return n <= 3 ? "getProject" : n == 4 ? "getProjectCustomFields"
+            : "getProjectCustomField";
+      }
+      if ("customfield".equals(s[1])) {
+        return "getBundle";
+      }
+      if ("user".equals(s[1])) {
+        return n == 2 ? "getUsersListInGroup" : "getUser";
+      }
+      if ("timetracking".equals(s[1])) {
+        return "getTimeTrackingSettings";
+      }
+      if ("issueLinkType".equals(s[1])) {
+        return "getAllLinkTypeCommands";
+      }
+    } else if ("user".equals(s[0]) && n > 1) {
+      if ("login".equals(s[1])) {
+        return "login";
+      }
+      if ("tag".equals(s[1])) {
+        return "getUserTags";
+      }
+      return "getSavedSearches";
+    } else if ("project".equals(s[0])) {
+      return "getProjects";
+    }
+    return method + " /" + s[0];
+  }
+
+}
@@ -0,0 +1,159 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Asks server for gzip or deflate encoded responses and decodes them while the entity is read, so
+ * the decompressed document is never buffered as a whole. Counts bytes received from the network
+ * and bytes handed to the parser.
+ */
+public class CompressionFilter extends ClientFilter {
+
+  public static final String ACCEPT_ENCODING_VALUE = "gzip, deflate";
+
+  private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+  private static final String CONTENT_ENCODING = "Content-Encoding";
+
+  private static final String GZIP = "gzip";
+
+  private static final String X_GZIP = "x-gzip";
+
+  private static final String DEFLATE = "deflate";
+
+  private final AtomicLong wireBytes = new AtomicLong();
+
+  private final AtomicLong decodedBytes = new AtomicLong();
+
+  private final AtomicLong compressedResponses = new AtomicLong();
+
+  private final AtomicLong plainResponses = new AtomicLong();
+
+  @Override
+  public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+    if (!request.getHeaders().containsKey(ACCEPT_ENCODING)) {
+      request.getHeaders().putSingle(ACCEPT_ENCODING, ACCEPT_ENCODING_VALUE);
+    }
+
+    ClientResponse response = getNext().handle(request);
+    if (!response.hasEntity()) {
+      return response;
+    }
+
+    InputStream wire = new CountingInputStream(response.getEntityInputStream(), wireBytes);
+    String encoding = response.getHeaders().getFirst(CONTENT_ENCODING);
+    try {
+      if (encoding != null && (GZIP.equalsIgnoreCase(encoding) || X_GZIP.equalsIgnoreCase(encoding))) {
+        response.setEntityInputStream(new CountingInputStream(new GZIPInputStream(wire),
+            decodedBytes));
+        markDecoded(response);
+      } else if (encoding != null && DEFLATE.equalsIgnoreCase(encoding)) {
+        response.setEntityInputStream(new CountingInputStream(inflate(wire), decodedBytes));
+        markDecoded(response);
+      } else {
+        response.setEntityInputStream(new CountingInputStream(wire, decodedBytes));
+        plainResponses.incrementAndGet();
+      }
+    } catch (IOException e) {
+      throw new ClientHandlerException("Failed to decode " + encoding + " response", e);
+    }
+    return response;
+  }
+
+  private void markDecoded(ClientResponse response) {
+    compressedResponses.incrementAndGet();
+    response.getHeaders().remove(CONTENT_ENCODING);
+    response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+  }
+
+  /**
+   * "deflate" is sent by some servers as zlib stream and by others as raw deflate data, so check
+   * zlib header first.
+   */
+  private InputStream inflate(InputStream in) throws IOException {
+    BufferedInputStream buffered = new BufferedInputStream(in);
+    buffered.mark(2);
+    int cmf = buffered.read();
+    int flg = buffered.read();
+    buffered.reset();
+    boolean zlib = cmf != -1 && flg != -1 && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+    return new InflaterInputStream(buffered, new Inflater(!zlib));
+  }
+
+  /**
+   * @return bytes of response entities read from network, compressed or not
+   */
+  public long getWireBytes() {
+    return wireBytes.get();
+  }
+
+  /**
+   * @return bytes of response entities after decompression
+   */
+  public long getDecodedBytes() {
+    return decodedBytes.get();
+  }
+
+  public long getCompressedResponses() {
+    return compressedResponses.get();
+  }
+
+  public long getPlainResponses() {
+    return plainResponses.get();
+  }
+
+  private static class CountingInputStream extends FilterInputStream {
+
+    private final AtomicLong counter;
+
+    CountingInputStream(InputStream in, AtomicLong counter) {
+      super(in);
+      this.counter = counter;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        counter.incrementAndGet();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        counter.addAndGet(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      counter.addAndGet(skipped);
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
+
+}
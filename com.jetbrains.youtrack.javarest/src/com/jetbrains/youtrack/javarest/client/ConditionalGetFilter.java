@@ -0,0 +1,158 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import com.jetbrains.youtrack.javarest.client.HttpResponseCache.CachedResponse;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Revalidates cached GET responses of rarely changing resources (projects, custom fields,
+ * bundles) with If-None-Match / If-Modified-Since. On 304 Not Modified the cached entity is
+ * returned as if the server sent it again.
+ */
+public class ConditionalGetFilter extends ClientFilter {
+
+  public static final String[] DEFAULT_CACHEABLE_PATHS = {"/rest/admin/", "/rest/project/all"};
+
+  private static final String GET = "GET";
+
+  private static final String ETAG = "ETag";
+
+  private static final int NOT_MODIFIED = 304;
+
+  private static final int OK = 200;
+
+  private final HttpResponseCache cache;
+
+  private final String[] cacheablePaths;
+
+  private final AtomicLong revalidated = new AtomicLong();
+
+  private final AtomicLong stored = new AtomicLong();
+
+  private final AtomicLong uncacheable = new AtomicLong();
+
+  public ConditionalGetFilter(HttpResponseCache cache) {
+    this(cache, DEFAULT_CACHEABLE_PATHS);
+  }
+
+  public ConditionalGetFilter(HttpResponseCache cache, String[] cacheablePaths) {
+    this.cache = cache;
+    this.cacheablePaths = cacheablePaths;
+  }
+
+  @Override
+  public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+    if (!isCacheable(request)) {
+      return getNext().handle(request);
+    }
+
+    String key = getKey(request);
+    CachedResponse cached = cache.get(key);
+    if (cached != null) {
+      if (cached.getEntityTag() != null) {
+        request.getHeaders().putSingle(HttpHeaders.IF_NONE_MATCH, cached.getEntityTag());
+      }
+      if (cached.getLastModified() != null) {
+        request.getHeaders().putSingle(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+      }
+    }
+
+    ClientResponse response = getNext().handle(request);
+
+    if (response.getStatus() == NOT_MODIFIED && cached != null) {
+      revalidated.incrementAndGet();
+      response.setStatus(OK);
+      if (cached.getContentType() != null) {
+        response.getHeaders().putSingle(HttpHeaders.CONTENT_TYPE, cached.getContentType());
+      }
+      response.setEntityInputStream(new ByteArrayInputStream(cached.getEntity()));
+    } else if (response.getStatus() == OK) {
+      String entityTag = response.getHeaders().getFirst(ETAG);
+      String lastModified = response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+      if (entityTag != null || lastModified != null) {
+        byte[] entity = readEntity(response);
+        cache.put(key, new CachedResponse(entityTag, lastModified, response.getHeaders().getFirst(
+            HttpHeaders.CONTENT_TYPE), entity));
+        stored.incrementAndGet();
+      } else {
+        uncacheable.incrementAndGet();
+        cache.remove(key);
+      }
+    } else {
+      cache.remove(key);
+    }
+    return response;
+  }
+
+  private boolean isCacheable(ClientRequest request) {
+    if (!GET.equals(request.getMethod())) {
+      return false;
+    }
+    String path = request.getURI().getPath();
+    for (String cacheablePath : cacheablePaths) {
+      if (path.contains(cacheablePath)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private String getKey(ClientRequest request) {
+    Object accept = request.getHeaders().getFirst(HttpHeaders.ACCEPT);
+    return request.getURI().toString() + "|" + (accept != null ? accept : "");
+  }
+
+  private byte[] readEntity(ClientResponse response) {
+    InputStream in = response.getEntityInputStream();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      try {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
+        }
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      throw new ClientHandlerException(e);
+    }
+    byte[] entity = out.toByteArray();
+    response.setEntityInputStream(new ByteArrayInputStream(entity));
+    return entity;
+  }
+
+  public HttpResponseCache getCache() {
+    return cache;
+  }
+
+  /**
+   * @return number of requests answered with 304 and served from cache
+   */
+  public long getRevalidatedCount() {
+    return revalidated.get();
+  }
+
+  public long getStoredCount() {
+    return stored.get();
+  }
+
+  /**
+   * @return number of cacheable requests whose response had no validators
+   */
+  public long getUncacheableCount() {
+    return uncacheable.get();
+  }
+
+}
@@ -0,0 +1,210 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded store of GET responses with their validators. Entries are kept in memory in LRU order,
+ * evicted entries are optionally written to a spill directory and read back on the next lookup.
+ */
+public class HttpResponseCache {
+
+  public static final int DEFAULT_MAX_ENTRIES = 256;
+
+  private static final String ENTRY_FILE_SUFFIX = ".entry";
+
+  public static class CachedResponse {
+
+    private final String entityTag;
+
+    private final String lastModified;
+
+    private final String contentType;
+
+    private final byte[] entity;
+
+    public CachedResponse(String entityTag, String lastModified, String contentType, byte[] entity) {
+      this.entityTag = entityTag;
+      this.lastModified = lastModified;
+      this.contentType = contentType;
+      this.entity = entity;
+    }
+
+    public String getEntityTag() {
+      return entityTag;
+    }
+
+    public String getLastModified() {
+      return lastModified;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+
+    public byte[] getEntity() {
+      return entity;
+    }
+  }
+
+  private final int maxEntries;
+
+  private final File spillDirectory;
+
+  private final LinkedHashMap<String, CachedResponse> entries;
+
+  private final LinkedHashMap<String, File> spilledEntries;
+
+  public HttpResponseCache(int maxEntries) {
+    this(maxEntries, null);
+  }
+
+  /**
+   * @param spillDirectory directory for evicted entries, null to keep responses only in memory
+   */
+  public HttpResponseCache(int maxEntries, File spillDirectory) {
+    this.maxEntries = Math.max(1, maxEntries);
+    this.spillDirectory = spillDirectory;
+    this.entries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true);
+    this.spilledEntries = new LinkedHashMap<String, File>(16, 0.75f, true);
+    if (spillDirectory != null) {
+      spillDirectory.mkdirs();
+      // entries of previous session are not indexed, drop them
+      File[] staleFiles = spillDirectory.listFiles();
+      if (staleFiles != null) {
+        for (File file : staleFiles) {
+          if (file.getName().endsWith(ENTRY_FILE_SUFFIX)) {
+            file.delete();
+          }
+        }
+      }
+    }
+  }
+
+  public synchronized CachedResponse get(String key) {
+    CachedResponse response = entries.get(key);
+    if (response == null && spilledEntries.containsKey(key)) {
+      File file = spilledEntries.remove(key);
+      response = readFromDisk(file);
+      file.delete();
+      if (response != null) {
+        put(key, response);
+      }
+    }
+    return response;
+  }
+
+  public synchronized void put(String key, CachedResponse response) {
+    entries.put(key, response);
+    if (entries.size() > maxEntries) {
+      Iterator<Map.Entry<String, CachedResponse>> eldest = entries.entrySet().iterator();
+      Map.Entry<String, CachedResponse> entry = eldest.next();
+      eldest.remove();
+      spill(entry.getKey(), entry.getValue());
+    }
+  }
+
+  public synchronized void remove(String key) {
+    entries.remove(key);
+    File file = spilledEntries.remove(key);
+    if (file != null) {
+      file.delete();
+    }
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    for (File file : spilledEntries.values()) {
+      file.delete();
+    }
+    spilledEntries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size() + spilledEntries.size();
+  }
+
+  private void spill(String key, CachedResponse response) {
+    if (spillDirectory == null) {
+      return;
+    }
+    File file = new File(spillDirectory, fileName(key));
+    try {
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      try {
+        writeNullable(out, response.getEntityTag());
+        writeNullable(out, response.getLastModified());
+        writeNullable(out, response.getContentType());
+        out.writeInt(response.getEntity().length);
+        out.write(response.getEntity());
+      } finally {
+        out.close();
+      }
+      spilledEntries.put(key, file);
+      if (spilledEntries.size() > maxEntries) {
+        Iterator<File> eldest = spilledEntries.values().iterator();
+        eldest.next().delete();
+        eldest.remove();
+      }
+    } catch (IOException e) {
+      // disk spill is best effort, entry will be fetched again
+      file.delete();
+    }
+  }
+
+  private CachedResponse readFromDisk(File file) {
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        String entityTag = readNullable(in);
+        String lastModified = readNullable(in);
+        String contentType = readNullable(in);
+        byte[] entity = new byte[in.readInt()];
+        in.readFully(entity);
+        return new CachedResponse(entityTag, lastModified, contentType, entity);
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static void writeNullable(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readNullable(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static String fileName(String key) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      StringBuilder name = new StringBuilder();
+      for (byte b : digest.digest(key.getBytes(StandardCharsets.UTF_8))) {
+        name.append(String.format("%02x", b));
+      }
+      return name.append(ENTRY_FILE_SUFFIX).toString();
+    } catch (NoSuchAlgorithmException e) {
+      return Integer.toHexString(key.hashCode()) + ENTRY_FILE_SUFFIX;
+    }
+  }
+
+}
@@ -0,0 +1,258 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.jetbrains.youtrack.javarest.client.YouTrackCustomField.YouTrackCustomFieldType;
+
+/**
+ * Compiles difference between two states of an issue into the fewest REST calls: at most one POST
+ * for summary and description and one /execute command with all field and tag changes. Only tags
+ * and values of string and text fields which are not a single word get own command, inside a
+ * combined command the server can't tell where such value ends.
+ */
+public class IssueCommandCompiler {
+
+  /**
+   * Calls which bring issue to new state, in order of execution.
+   */
+  public static class IssueUpdate {
+
+    private final String summary;
+
+    private final String description;
+
+    private final List<String> commands;
+
+    private final boolean complete;
+
+    IssueUpdate(String summary, String description, List<String> commands, boolean complete) {
+      this.summary = summary;
+      this.description = description;
+      this.commands = Collections.unmodifiableList(commands);
+      this.complete = complete;
+    }
+
+    /**
+     * @return new summary or null if summary and description are not changed
+     */
+    public String getSummary() {
+      return summary;
+    }
+
+    /**
+     * @return new description, null if not changed
+     */
+    public String getDescription() {
+      return description;
+    }
+
+    public boolean isSummaryOrDescriptionChanged() {
+      return summary != null;
+    }
+
+    public List<String> getCommands() {
+      return commands;
+    }
+
+    /**
+     * @return false if custom fields info of new issue was inconsistent and update was cut off
+     */
+    public boolean isComplete() {
+      return complete;
+    }
+
+    /**
+     * @return number of HTTP requests needed to apply the update
+     */
+    public int getCallCount() {
+      return (isSummaryOrDescriptionChanged() ? 1 : 0) + commands.size();
+    }
+
+    public boolean isEmpty() {
+      return getCallCount() == 0;
+    }
+  }
+
+  private IssueCommandCompiler() {
+  }
+
+  /**
+   * If custom fields info of new issue is inconsistent, fields after the first inconsistent one
+   * and tags are left unchanged.
+   */
+  public static IssueUpdate compile(YouTrackIssue oldIssue, YouTrackIssue newIssue) {
+    String summary = null;
+    String description = null;
+    if (needUpdateSummary(oldIssue, newIssue) || needUpdateDescription(oldIssue, newIssue)) {
+      summary = newIssue.getSummary();
+      description = newIssue.getDescription();
+    }
+
+    List<String> commands = new LinkedList<String>();
+    StringBuilder removeCommand = new StringBuilder();
+    StringBuilder setCommand = new StringBuilder();
+
+    for (String customFieldName : newIssue.getCustomFieldsValues().keySet()) {
+      if (!newIssue.isCustomFieldsDataConsistent(customFieldName)) {
+        return new IssueUpdate(summary, description, joinCommands(commands, removeCommand,
+            setCommand), false);
+      }
+      YouTrackCustomField customFieldInfo = newIssue.getCustomFieldInfo(customFieldName);
+      if (!needUpdateCustomField(oldIssue, newIssue, customFieldName)) {
+        continue;
+      }
+
+      if (customFieldInfo.isSingle()) {
+        String value = newIssue.getSingleCustomFieldValue(customFieldName);
+        if (isText(customFieldInfo) && !isWord(value)) {
+          commands.add(customFieldName + ": " + value);
+        } else {
+          setCommand.append(customFieldName + ": " + value + " ");
+        }
+      } else {
+        LinkedList<String> selectedValues = copy(newIssue.getCustomFieldValue(customFieldName));
+        LinkedList<String> oldValues = getOldValues(oldIssue, newIssue, customFieldName);
+
+        LinkedList<String> addValues = new LinkedList<String>(selectedValues);
+        addValues.removeAll(oldValues);
+        LinkedList<String> removeValues = new LinkedList<String>(oldValues);
+        removeValues.removeAll(selectedValues);
+
+        if (removeValues.size() > 0) {
+          removeCommand.append("remove " + customFieldName + " ");
+          for (String value : removeValues) {
+            removeCommand.append(value + " ");
+          }
+        }
+        if (addValues.size() > 0) {
+          setCommand.append("add " + customFieldName + " ");
+          for (String value : addValues) {
+            setCommand.append(value + " ");
+          }
+        }
+      }
+    }
+
+    LinkedList<String> selectedTags = new LinkedList<String>();
+    if (newIssue.getTags() != null) {
+      selectedTags = newIssue.getStringTags();
+    }
+    LinkedList<String> oldTags = new LinkedList<String>();
+    if (oldIssue.getTags() != null) {
+      oldTags = oldIssue.getStringTags();
+    }
+    LinkedList<String> addTags = new LinkedList<String>(selectedTags);
+    addTags.removeAll(oldTags);
+    LinkedList<String> removeTags = new LinkedList<String>(oldTags);
+    removeTags.removeAll(selectedTags);
+
+    for (String tag : removeTags) {
+      addTagCommand("remove tag " + tag.replace("\n", ""), tag, commands, removeCommand);
+    }
+    for (String tag : addTags) {
+      addTagCommand("add tag " + tag.replace("\n", ""), tag, commands, setCommand);
+    }
+
+    return new IssueUpdate(summary, description,
+        joinCommands(commands, removeCommand, setCommand), true);
+  }
+
+  /**
+   * Removals go first, so a value moved between fields is not removed right after it was added.
+   */
+  private static List<String> joinCommands(List<String> commands, StringBuilder removeCommand,
+      StringBuilder setCommand) {
+    String command = (removeCommand.toString() + setCommand.toString()).trim();
+    if (command.length() > 0) {
+      commands.add(command);
+    }
+    return commands;
+  }
+
+  private static void addTagCommand(String command, String tag, List<String> commands,
+      StringBuilder combinedCommand) {
+    if (isWord(tag.trim())) {
+      combinedCommand.append(command + " ");
+    } else {
+      commands.add(command);
+    }
+  }
+
+  private static boolean isText(YouTrackCustomField customFieldInfo) {
+    return YouTrackCustomFieldType.STRING.getName().equals(customFieldInfo.getType())
+        || YouTrackCustomFieldType.TEXT.getName().equals(customFieldInfo.getType());
+  }
+
+  private static boolean isWord(String value) {
+    if (value == null || value.length() == 0) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (Character.isWhitespace(value.charAt(i)) || value.charAt(i) == ':') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static LinkedList<String> copy(LinkedList<String> values) {
+    return values != null ? new LinkedList<String>(values) : new LinkedList<String>();
+  }
+
+  /**
+   * Old values of multi-user fields come as "Full Name (login)", new ones as logins.
+   */
+  private static LinkedList<String> getOldValues(YouTrackIssue oldIssue, YouTrackIssue newIssue,
+      String customFieldName) {
+    LinkedList<String> values = copy(oldIssue.getCustomFieldValue(customFieldName));
+    YouTrackCustomField customFieldInfo = newIssue.getCustomFieldInfo(customFieldName);
+    if (customFieldInfo != null
+        && YouTrackCustomFieldType.USER_MULTI.equals(YouTrackCustomFieldType
+            .getTypeByName(customFieldInfo.getType()))) {
+      LinkedList<String> logins = new LinkedList<String>();
+      for (String value : values) {
+        logins.add(YouTrackIssue.getLoginFromMultiuserValue(value));
+      }
+      return logins;
+    }
+    return values;
+  }
+
+  public static boolean needUpdateSummary(YouTrackIssue oldIssue, YouTrackIssue newIssue) {
+    return newIssue.getSummary() != null && newIssue.getSummary().length() > 0
+        && !newIssue.getSummary().equals(oldIssue.getSummary());
+  }
+
+  public static boolean needUpdateDescription(YouTrackIssue oldIssue, YouTrackIssue newIssue) {
+    return newIssue.getDescription() != null
+        && (oldIssue.getDescription() == null || !oldIssue.getDescription().equals(
+            newIssue.getDescription()));
+  }
+
+  public static boolean needUpdateCustomField(YouTrackIssue oldIssue, YouTrackIssue newIssue,
+      String customFieldName) {
+    YouTrackCustomField customFieldInfo = newIssue.getCustomFieldInfo(customFieldName);
+    if (customFieldInfo.isSingle()) {
+      return newIssue.getSingleCustomFieldValue(customFieldName) != null
+          && (oldIssue.getSingleCustomFieldValue(customFieldName) == null || !oldIssue
+              .getSingleCustomFieldValue(customFieldName).equals(
+                  newIssue.getSingleCustomFieldValue(customFieldName)));
+    } else {
+      if (newIssue.getCustomFieldValue(customFieldName) == null) {
+        return false;
+      }
+      LinkedList<String> newValues = copy(newIssue.getCustomFieldValue(customFieldName));
+      if (oldIssue.getCustomFieldValue(customFieldName) == null) {
+        return true;
+      }
+      LinkedList<String> oldValues = getOldValues(oldIssue, newIssue, customFieldName);
+
+      boolean equalSize = newValues.size() == oldValues.size();
+      oldValues.removeAll(newValues);
+      return !equalSize || oldValues.size() > 0;
+    }
+  }
+
+}
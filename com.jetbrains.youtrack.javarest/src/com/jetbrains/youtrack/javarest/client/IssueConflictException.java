@@ -0,0 +1,22 @@
+package com.jetbrains.youtrack.javarest.client;
+
+/**
+ * Server rejected an update (412 Precondition Failed) because the issue was changed after the
+ * state the update was computed from.
+ */
+public class IssueConflictException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String issueId;
+
+  public IssueConflictException(String issueId) {
+    super("Issue " + issueId + " was changed on server since it was loaded.");
+    this.issueId = issueId;
+  }
+
+  public String getIssueId() {
+    return issueId;
+  }
+
+}
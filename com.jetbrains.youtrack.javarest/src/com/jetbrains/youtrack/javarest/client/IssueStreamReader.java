@@ -0,0 +1,75 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Pull parser for issue lists (&lt;issueCompacts&gt;, &lt;issues&gt;). Each &lt;issue&gt; element
+ * is unmarshalled as soon as its end tag is read and handed to the consumer, so only one issue is
+ * kept in memory regardless of list size. Issues are read with the shared context and pooled
+ * unmarshallers of {@link JaxbBindings}.
+ */
+public class IssueStreamReader {
+
+  private static final String ISSUE_ELEMENT = "issue";
+
+  private static final XMLInputFactory inputFactory = createInputFactory();
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /**
+   * Read issues from stream and close it.
+   *
+   * @return number of issues passed to consumer
+   */
+  public static int read(InputStream in, Consumer<YouTrackIssue> consumer) {
+    try {
+      try {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+        try {
+          int count = 0;
+          int depth = 0;
+          while (reader.hasNext()) {
+            int event = reader.getEventType();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+              if (depth == 1 && ISSUE_ELEMENT.equals(reader.getLocalName())) {
+                // unmarshal leaves reader after the end tag of the issue
+                consumer.accept(JaxbBindings.unmarshal(reader, YouTrackIssue.class));
+                count++;
+                continue;
+              }
+              depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+              depth--;
+            }
+            reader.next();
+          }
+          return count;
+        } finally {
+          reader.close();
+        }
+      } finally {
+        in.close();
+      }
+    } catch (JAXBException e) {
+      throw new RuntimeException("Exception while parse list of issues:\n" + e.getMessage(), e);
+    } catch (XMLStreamException e) {
+      throw new RuntimeException("Exception while parse list of issues:\n" + e.getMessage(), e);
+    } catch (IOException e) {
+      throw new RuntimeException("Exception while read list of issues:\n" + e.getMessage(), e);
+    }
+  }
+
+}
@@ -0,0 +1,266 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.UnmarshalException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stream.StreamSource;
+
+import com.jetbrains.youtrack.javarest.utils.BuildBundleValues;
+import com.jetbrains.youtrack.javarest.utils.BuildValue;
+import com.jetbrains.youtrack.javarest.utils.EnumerationBundleValues;
+import com.jetbrains.youtrack.javarest.utils.EnumerationValue;
+import com.jetbrains.youtrack.javarest.utils.GroupUsersList;
+import com.jetbrains.youtrack.javarest.utils.IntellisenseValues;
+import com.jetbrains.youtrack.javarest.utils.OwnedFieldBundleValues;
+import com.jetbrains.youtrack.javarest.utils.OwnedFieldValue;
+import com.jetbrains.youtrack.javarest.utils.SavedSearch;
+import com.jetbrains.youtrack.javarest.utils.SavedSearches;
+import com.jetbrains.youtrack.javarest.utils.StateBundleValues;
+import com.jetbrains.youtrack.javarest.utils.StateValue;
+import com.jetbrains.youtrack.javarest.utils.UserBundleValues;
+import com.jetbrains.youtrack.javarest.utils.UserGroupValue;
+import com.jetbrains.youtrack.javarest.utils.UserSavedSearches;
+import com.jetbrains.youtrack.javarest.utils.UserValue;
+import com.jetbrains.youtrack.javarest.utils.VersionBundleValues;
+import com.jetbrains.youtrack.javarest.utils.VersionValue;
+import com.jetbrains.youtrack.javarest.utils.YouTrackTimeSettings;
+import com.sun.jersey.api.json.JSONConfiguration;
+import com.sun.jersey.api.json.JSONJAXBContext;
+import com.sun.jersey.core.util.ReaderWriter;
+
+/**
+ * One JAXBContext for all classes of REST model and a small pool of unmarshallers. Building a
+ * context is expensive, by default Jersey builds context per class and new unmarshaller per
+ * response. Unmarshallers are not thread safe, so a response borrows one from the pool and
+ * returns it when read; pool doesn't depend on threads, which may be virtual and short-lived.
+ * JSON is bound to the same classes in natural notation, so both wire formats produce identical
+ * model objects. Providers of this class are registered in client config by
+ * {@link YouTrackClientFactory}.
+ */
+public class JaxbBindings {
+
+  private static final Class<?>[] MODEL_CLASSES = {YouTrackIssue.class, YouTrackIssuesList.class,
+      IssueCompactsList.class, IssueLinkTypesList.class, YouTrackProject.class,
+      YouTrackProjectsList.class, YouTrackCustomField.class, YouTrackCustomFieldsList.class,
+      CustomFieldParam.class, UserTagList.class, BuildBundleValues.class, BuildValue.class,
+      EnumerationBundleValues.class, EnumerationValue.class, OwnedFieldBundleValues.class,
+      OwnedFieldValue.class, StateBundleValues.class, StateValue.class, UserBundleValues.class,
+      UserValue.class, UserGroupValue.class, GroupUsersList.class, VersionBundleValues.class,
+      VersionValue.class, IntellisenseValues.class, SavedSearch.class, SavedSearches.class,
+      UserSavedSearches.class, YouTrackTimeSettings.class};
+
+  private static final Set<Class<?>> modelClasses = new HashSet<Class<?>>(
+      Arrays.asList(MODEL_CLASSES));
+
+  private static volatile JAXBContext context;
+
+  private static volatile JSONJAXBContext jsonContext;
+
+  /**
+   * Idle unmarshallers kept per wire format, more are created while many responses are read at
+   * once and dropped after use.
+   */
+  public static final int MAX_IDLE_UNMARSHALLERS = 16;
+
+  private static final UnmarshallerPool unmarshallers = new UnmarshallerPool(false);
+
+  private static final UnmarshallerPool jsonUnmarshallers = new UnmarshallerPool(true);
+
+  private JaxbBindings() {
+  }
+
+  public static boolean isModelClass(Class<?> type) {
+    return modelClasses.contains(type);
+  }
+
+  /**
+   * @return context of all model classes, built on first call
+   */
+  public static JAXBContext getContext() {
+    if (context == null) {
+      synchronized (JaxbBindings.class) {
+        if (context == null) {
+          try {
+            context = JAXBContext.newInstance(MODEL_CLASSES);
+          } catch (JAXBException e) {
+            throw new RuntimeException("Failed to create JAXB context for YouTrack model:\n"
+                + e.getMessage(), e);
+          }
+        }
+      }
+    }
+    return context;
+  }
+
+  /**
+   * @return JSON context of all model classes, built on first call
+   */
+  public static JSONJAXBContext getJsonContext() {
+    if (jsonContext == null) {
+      synchronized (JaxbBindings.class) {
+        if (jsonContext == null) {
+          try {
+            jsonContext = new JSONJAXBContext(JSONConfiguration.natural().build(), MODEL_CLASSES);
+          } catch (JAXBException e) {
+            throw new RuntimeException("Failed to create JSON context for YouTrack model:\n"
+                + e.getMessage(), e);
+          }
+        }
+      }
+    }
+    return jsonContext;
+  }
+
+  public static <T> T unmarshal(InputStream in, Class<T> type) throws JAXBException {
+    Unmarshaller unmarshaller = unmarshallers.borrow();
+    try {
+      return unmarshaller.unmarshal(new StreamSource(in), type).getValue();
+    } finally {
+      unmarshallers.release(unmarshaller);
+    }
+  }
+
+  /**
+   * Unmarshal the element reader is at, reader is left after its end tag.
+   */
+  public static <T> T unmarshal(XMLStreamReader reader, Class<T> type) throws JAXBException {
+    Unmarshaller unmarshaller = unmarshallers.borrow();
+    try {
+      return unmarshaller.unmarshal(reader, type).getValue();
+    } finally {
+      unmarshallers.release(unmarshaller);
+    }
+  }
+
+  public static <T> T unmarshalJson(InputStream in, MediaType mediaType, Class<T> type)
+      throws JAXBException {
+    Unmarshaller unmarshaller = jsonUnmarshallers.borrow();
+    try {
+      return JSONJAXBContext.getJSONUnmarshaller(unmarshaller).unmarshalFromJSON(
+          new InputStreamReader(in, ReaderWriter.getCharset(mediaType)), type);
+    } finally {
+      jsonUnmarshallers.release(unmarshaller);
+    }
+  }
+
+  private static final class UnmarshallerPool {
+
+    private final boolean json;
+
+    private final Queue<Unmarshaller> idle = new ConcurrentLinkedQueue<Unmarshaller>();
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    UnmarshallerPool(boolean json) {
+      this.json = json;
+    }
+
+    Unmarshaller borrow() throws JAXBException {
+      Unmarshaller unmarshaller = idle.poll();
+      if (unmarshaller != null) {
+        idleCount.decrementAndGet();
+        return unmarshaller;
+      }
+      return json ? getJsonContext().createUnmarshaller() : getContext().createUnmarshaller();
+    }
+
+    void release(Unmarshaller unmarshaller) {
+      if (idleCount.incrementAndGet() <= MAX_IDLE_UNMARSHALLERS) {
+        idle.offer(unmarshaller);
+      } else {
+        idleCount.decrementAndGet();
+      }
+    }
+  }
+
+  @Provider
+  public static class ContextProvider implements ContextResolver<JAXBContext> {
+
+    @Override
+    public JAXBContext getContext(Class<?> type) {
+      return isModelClass(type) ? JaxbBindings.getContext() : null;
+    }
+  }
+
+  @Provider
+  @Produces(MediaType.APPLICATION_JSON)
+  public static class JsonContextProvider implements ContextResolver<JAXBContext> {
+
+    @Override
+    public JAXBContext getContext(Class<?> type) {
+      return isModelClass(type) ? getJsonContext() : null;
+    }
+  }
+
+  /**
+   * Jersey reads model classes with an unmarshaller it gets from a ContextResolver and never
+   * returns, so responses are read here to give unmarshallers back to the pool.
+   */
+  @Provider
+  @Consumes({MediaType.APPLICATION_XML, MediaType.TEXT_XML})
+  public static class XmlReader implements MessageBodyReader<Object> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations,
+        MediaType mediaType) {
+      return isModelClass(type);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations,
+        MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream) {
+      try {
+        return unmarshal(entityStream, type);
+      } catch (UnmarshalException e) {
+        throw new WebApplicationException(e, 400);
+      } catch (JAXBException e) {
+        throw new WebApplicationException(e, 500);
+      }
+    }
+  }
+
+  @Provider
+  @Consumes(MediaType.APPLICATION_JSON)
+  public static class JsonReader implements MessageBodyReader<Object> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations,
+        MediaType mediaType) {
+      return isModelClass(type);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations,
+        MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream) {
+      try {
+        return unmarshalJson(entityStream, mediaType, type);
+      } catch (UnmarshalException e) {
+        throw new WebApplicationException(e, 400);
+      } catch (JAXBException e) {
+        throw new WebApplicationException(e, 500);
+      }
+    }
+  }
+
+}
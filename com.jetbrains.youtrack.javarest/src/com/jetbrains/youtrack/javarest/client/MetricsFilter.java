@@ -0,0 +1,111 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Records every request in {@link ClientMetrics} under the name of the client call. A call ends
+ * when its response body is read to the end or closed, so latency includes the transfer and size
+ * is the number of bytes the client read. Responses with status 400 and above and failed requests
+ * are errors.
+ */
+public class MetricsFilter extends ClientFilter {
+
+  private final ClientMetrics metrics;
+
+  public MetricsFilter(ClientMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public ClientMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+    String endpoint = ClientMetrics.getEndpointName(request.getMethod(), request.getURI());
+    long start = System.currentTimeMillis();
+    ClientResponse response;
+    try {
+      response = getNext().handle(request);
+    } catch (RuntimeException e) {
+      metrics.record(endpoint, System.currentTimeMillis() - start, 0, true);
+      throw e;
+    }
+    boolean error = response.getStatus() >= 400;
+    if (response.hasEntity()) {
+      response.setEntityInputStream(new MeasuredInputStream(response.getEntityInputStream(),
+          endpoint, start, error));
+    } else {
+      metrics.record(endpoint, System.currentTimeMillis() - start, 0, error);
+    }
+    return response;
+  }
+
+  private class MeasuredInputStream extends FilterInputStream {
+
+    private final String endpoint;
+
+    private final long start;
+
+    private final boolean error;
+
+    private final AtomicBoolean recorded = new AtomicBoolean();
+
+    private long size = 0;
+
+    MeasuredInputStream(InputStream in, String endpoint, long start, boolean error) {
+      super(in);
+      this.endpoint = endpoint;
+      this.start = start;
+      this.error = error;
+    }
+
+    private void record() {
+      if (recorded.compareAndSet(false, true)) {
+        metrics.record(endpoint, System.currentTimeMillis() - start, size, error);
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b == -1) {
+        record();
+      } else {
+        size++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read == -1) {
+        record();
+      } else {
+        size += read;
+      }
+      return read;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      record();
+      super.close();
+    }
+  }
+
+}
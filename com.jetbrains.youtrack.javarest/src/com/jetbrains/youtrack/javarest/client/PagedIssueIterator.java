@@ -0,0 +1,237 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Iterates over issues of a query page by page using after/max parameters. Issues of a page are
+ * handed over one by one while the response is parsed. When executor is given, pages are read
+ * there into a queue of one page, so the next issues are transferred while current ones are
+ * processed and the next page is requested as soon as the current one is read.
+ * <p>
+ * Server may return less issues than requested because of its own page limit, so a short page
+ * doesn't end the query: next page starts after the issues actually returned, and the query ends
+ * on an empty page or on a page shorter than the server limit learned from the short one.
+ */
+public class PagedIssueIterator implements Iterator<YouTrackIssue> {
+
+  public static final int DEFAULT_PAGE_SIZE = 100;
+
+  private static final long WAIT_SLICE_MILLIS = 100;
+
+  private static final Object END = new Object();
+
+  /**
+   * Reads at most max issues following the first after issues of the query, each issue is passed
+   * to consumer as soon as it is parsed. Consumer may throw to stop reading.
+   */
+  public interface PageSource {
+
+    /**
+     * @return number of issues passed to consumer
+     */
+    int readPage(int after, int max, Consumer<YouTrackIssue> consumer);
+  }
+
+  private static class Failure {
+
+    private final Throwable error;
+
+    Failure(Throwable error) {
+      this.error = error;
+    }
+  }
+
+  private final PageSource source;
+
+  private final int pageSize;
+
+  private final int limit;
+
+  private final Executor executor;
+
+  private Iterator<YouTrackIssue> page = Collections.<YouTrackIssue>emptyList().iterator();
+
+  private BlockingQueue<Object> queue;
+
+  private CompletableFuture<Void> loader;
+
+  private Object next;
+
+  private int nextAfter = 0;
+
+  private int returned = 0;
+
+  private final AtomicInteger pagesFetched = new AtomicInteger();
+
+  private boolean lastPage = false;
+
+  private int serverPageSize = 0;
+
+  private volatile boolean cancelled = false;
+
+  /**
+   * @param limit max number of issues to return, -1 for all issues of the query
+   * @param executor executor reading pages ahead, null to read pages on demand
+   */
+  public PagedIssueIterator(PageSource source, int pageSize, int limit, Executor executor) {
+    this.source = source;
+    this.pageSize = Math.max(1, pageSize);
+    this.limit = limit;
+    this.executor = executor;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (limit != -1 && returned >= limit) {
+      cancel();
+      return false;
+    }
+    if (executor != null) {
+      return hasQueued();
+    }
+    while (!page.hasNext() && !lastPage && !cancelled) {
+      final List<YouTrackIssue> issues = new ArrayList<YouTrackIssue>();
+      source.readPage(nextAfter, pageSize, new Consumer<YouTrackIssue>() {
+        @Override
+        public void accept(YouTrackIssue issue) {
+          issues.add(issue);
+        }
+      });
+      pageRead(issues.size());
+      page = issues.iterator();
+    }
+    return page.hasNext();
+  }
+
+  @Override
+  public YouTrackIssue next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    returned++;
+    if (executor != null) {
+      YouTrackIssue issue = (YouTrackIssue) next;
+      next = null;
+      return issue;
+    }
+    return page.next();
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Stop reading pages, iterator must not be used after that.
+   */
+  public void cancel() {
+    cancelled = true;
+    lastPage = true;
+    page = Collections.<YouTrackIssue>emptyList().iterator();
+    next = END;
+    if (loader != null) {
+      loader.cancel(false);
+    }
+  }
+
+  public int getPagesFetched() {
+    return pagesFetched.get();
+  }
+
+  private void pageRead(int count) {
+    pagesFetched.incrementAndGet();
+    nextAfter += count;
+    if (count == 0 || count < serverPageSize) {
+      lastPage = true;
+    } else if (count < pageSize) {
+      // either the last page or the server limit, only the next page tells
+      serverPageSize = count;
+    }
+  }
+
+  private boolean hasQueued() {
+    if (next == null) {
+      if (loader == null) {
+        queue = new ArrayBlockingQueue<Object>(pageSize);
+        loader = CompletableFuture.runAsync(new Runnable() {
+          @Override
+          public void run() {
+            readPages();
+          }
+        }, executor);
+      }
+      try {
+        next = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancel();
+        throw new CancellationException("Interrupted while waiting for issues");
+      }
+      if (next instanceof Failure) {
+        Throwable error = ((Failure) next).error;
+        next = END;
+        if (error instanceof RuntimeException) {
+          throw (RuntimeException) error;
+        }
+        throw new RuntimeException(error);
+      }
+    }
+    return next != END;
+  }
+
+  /*
+   * runs on executor, lastPage and nextAfter are only used by this task in this mode
+   */
+  private void readPages() {
+    Object end = END;
+    try {
+      while (!lastPage && !cancelled) {
+        pageRead(source.readPage(nextAfter, pageSize, new Consumer<YouTrackIssue>() {
+          @Override
+          public void accept(YouTrackIssue issue) {
+            if (!put(issue)) {
+              throw new CancellationException();
+            }
+          }
+        }));
+      }
+    } catch (Throwable e) {
+      if (!cancelled) {
+        end = new Failure(e);
+      }
+    } finally {
+      put(end);
+    }
+  }
+
+  /**
+   * @return false if iterator was cancelled before there was room for the item
+   */
+  private boolean put(Object item) {
+    try {
+      while (!queue.offer(item, WAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS)) {
+        if (cancelled) {
+          return false;
+        }
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+}
@@ -0,0 +1,142 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.jetbrains.youtrack.javarest.client.YouTrackCustomField.YouTrackCustomFieldType;
+
+/**
+ * Loads custom fields of a project with their bundles. Each field is loaded by its own task,
+ * at most parallelism tasks at once, and each task has own timeout. A field which fails or times
+ * out keeps its previous definition, if there was one, and doesn't delay other fields.
+ */
+public class ProjectSchemaLoader {
+
+  public static final int DEFAULT_PARALLELISM = 6;
+
+  public static final long DEFAULT_FIELD_TIMEOUT = 60 * 1000;
+
+  private static final Log log = LogFactory.getLog(ProjectSchemaLoader.class);
+
+  private final YouTrackClient client;
+
+  private final Executor executor;
+
+  private volatile int parallelism = DEFAULT_PARALLELISM;
+
+  private volatile long fieldTimeout = DEFAULT_FIELD_TIMEOUT;
+
+  private final AtomicLong failedFields = new AtomicLong();
+
+  private volatile long lastLoadTime = 0;
+
+  /**
+   * @param executor executor for field tasks
+   */
+  public ProjectSchemaLoader(YouTrackClient client, Executor executor) {
+    this.client = client;
+    this.executor = executor;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public void setParallelism(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  /**
+   * @return time in milliseconds one field with its bundle may load, zero means no timeout
+   */
+  public long getFieldTimeout() {
+    return fieldTimeout;
+  }
+
+  public void setFieldTimeout(long fieldTimeout) {
+    this.fieldTimeout = Math.max(0, fieldTimeout);
+  }
+
+  /**
+   * @param previous fields loaded before, used for fields which can't be loaded now
+   * @return new map of fields by name, previous map is not changed
+   * @throws RuntimeException if list of project fields can't be loaded
+   */
+  public HashMap<String, YouTrackCustomField> load(final String projectShortName,
+      Map<String, YouTrackCustomField> previous) {
+    long start = System.currentTimeMillis();
+    List<YouTrackCustomField> fields = client.getProjectCustomFields(projectShortName);
+
+    List<Supplier<YouTrackCustomField>> tasks = new ArrayList<Supplier<YouTrackCustomField>>();
+    for (final YouTrackCustomField field : fields) {
+      tasks.add(() -> loadField(projectShortName, field.getName()));
+    }
+    List<CompletableFuture<YouTrackCustomField>> results =
+        new ArrayList<CompletableFuture<YouTrackCustomField>>();
+    for (CompletableFuture<YouTrackCustomField> result : BoundedCalls.start(tasks, parallelism,
+        executor)) {
+      results.add(fieldTimeout > 0 ? result.orTimeout(fieldTimeout, TimeUnit.MILLISECONDS)
+          : result);
+    }
+
+    HashMap<String, YouTrackCustomField> schema = new HashMap<String, YouTrackCustomField>();
+    int failed = 0;
+    for (int i = 0; i < fields.size(); i++) {
+      String name = fields.get(i).getName();
+      try {
+        YouTrackCustomField field = YouTrackAsyncClient.join(results.get(i));
+        schema.put(field.getName(), field);
+      } catch (RuntimeException e) {
+        failed++;
+        log.warn("Custom field " + name + " of project " + projectShortName
+            + " wasn't loaded: " + e.getMessage());
+        if (previous != null && previous.containsKey(name)) {
+          schema.put(name, previous.get(name));
+        }
+      }
+    }
+    failedFields.addAndGet(failed);
+
+    lastLoadTime = System.currentTimeMillis() - start;
+    if (log.isDebugEnabled()) {
+      log.debug("Schema of project " + projectShortName + ": " + fields.size() + " fields, "
+          + failed + " failed, " + lastLoadTime + " ms");
+    }
+    return schema;
+  }
+
+  private YouTrackCustomField loadField(String projectShortName, String name) {
+    YouTrackCustomField field = client.getProjectCustomField(projectShortName, name);
+    YouTrackCustomFieldType type = YouTrackCustomFieldType.getTypeByName(field.getType());
+    if (type != null && !type.isSimple()) {
+      field.findBundle();
+      field.getBundle().setBundleValues(field.getBundle().getBundleValuesFromClient(client));
+    }
+    return field;
+  }
+
+  /**
+   * @return number of fields which failed or timed out since creation
+   */
+  public long getFailedFieldCount() {
+    return failedFields.get();
+  }
+
+  /**
+   * @return duration of last load in milliseconds
+   */
+  public long getLastLoadTime() {
+    return lastLoadTime;
+  }
+
+}
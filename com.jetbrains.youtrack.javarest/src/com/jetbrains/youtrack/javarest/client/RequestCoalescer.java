@@ -0,0 +1,67 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of identical reads: while a call with some key is in progress, other
+ * callers with the same key wait for it and get its result or exception instead of sending own
+ * request. Results are shared between those callers: only calls whose results nobody modifies may
+ * be coalesced.
+ */
+public class RequestCoalescer {
+
+  private final ConcurrentMap<String, CompletableFuture<Object>> inFlight =
+      new ConcurrentHashMap<String, CompletableFuture<Object>>();
+
+  private final AtomicLong executed = new AtomicLong();
+
+  private final AtomicLong coalesced = new AtomicLong();
+
+  @SuppressWarnings("unchecked")
+  public <T> T execute(String key, Supplier<T> call) {
+    CompletableFuture<Object> pending = new CompletableFuture<Object>();
+    CompletableFuture<Object> running = inFlight.putIfAbsent(key, pending);
+    if (running != null) {
+      coalesced.incrementAndGet();
+      return (T) YouTrackAsyncClient.join(running);
+    }
+
+    executed.incrementAndGet();
+    try {
+      T result = call.get();
+      pending.complete(result);
+      return result;
+    } catch (RuntimeException e) {
+      pending.completeExceptionally(e);
+      throw e;
+    } catch (Error e) {
+      pending.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, pending);
+    }
+  }
+
+  /**
+   * @return number of calls which sent a request
+   */
+  public long getExecutedCount() {
+    return executed.get();
+  }
+
+  /**
+   * @return number of calls served by a request already in flight
+   */
+  public long getCoalescedCount() {
+    return coalesced.get();
+  }
+
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+}
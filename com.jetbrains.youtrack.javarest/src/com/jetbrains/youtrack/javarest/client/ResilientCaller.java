@@ -0,0 +1,172 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Runs REST calls with retry policy of their endpoint behind a circuit breaker. Retries are
+ * scheduled with a delayed executor, no thread sleeps during backoff: async calls release the
+ * executor thread, sync calls only wait for the result like for any other request.
+ */
+public class ResilientCaller {
+
+  /** idempotent reads */
+  public static final String ENDPOINT_READ = "read";
+
+  /** issue count, server returns -1 while count is not ready */
+  public static final String ENDPOINT_COUNT = "count";
+
+  /** changes, not repeated */
+  public static final String ENDPOINT_WRITE = "write";
+
+  private final CircuitBreaker circuitBreaker;
+
+  private final Map<String, RetryPolicy> policies = new ConcurrentHashMap<String, RetryPolicy>();
+
+  private final Executor retryExecutor;
+
+  private final AtomicLong retries = new AtomicLong();
+
+  private final AtomicLong exhausted = new AtomicLong();
+
+  public ResilientCaller(Executor retryExecutor) {
+    this(new CircuitBreaker(), new RetryPolicy(RetryPolicy.DEFAULT_MAX_ATTEMPTS,
+        RetryPolicy.DEFAULT_INITIAL_DELAY, RetryPolicy.DEFAULT_MAX_DELAY), retryExecutor);
+  }
+
+  /**
+   * @param retryExecutor executor for retries of sync calls
+   */
+  public ResilientCaller(CircuitBreaker circuitBreaker, RetryPolicy readPolicy,
+      Executor retryExecutor) {
+    this.circuitBreaker = circuitBreaker;
+    this.retryExecutor = retryExecutor;
+    policies.put(ENDPOINT_READ, readPolicy);
+    policies.put(ENDPOINT_COUNT, new RetryPolicy(10, 250, 2000));
+    policies.put(ENDPOINT_WRITE, RetryPolicy.NONE);
+  }
+
+  public void setPolicy(String endpoint, RetryPolicy policy) {
+    policies.put(endpoint, policy);
+  }
+
+  public RetryPolicy getPolicy(String endpoint) {
+    RetryPolicy policy = policies.get(endpoint);
+    return policy != null ? policy : RetryPolicy.NONE;
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  /**
+   * @return number of scheduled retries
+   */
+  public long getRetryCount() {
+    return retries.get();
+  }
+
+  /**
+   * @return number of calls failed with transient error after all attempts
+   */
+  public long getExhaustedCount() {
+    return exhausted.get();
+  }
+
+  public <T> T call(String endpoint, Supplier<T> call) {
+    return call(endpoint, call, null);
+  }
+
+  /**
+   * @param retryResult tells that successful result is not final and call must be repeated, may be
+   *        null
+   */
+  public <T> T call(String endpoint, Supplier<T> call, Predicate<T> retryResult) {
+    RetryPolicy policy = getPolicy(endpoint);
+    T value;
+    try {
+      value = invoke(call);
+    } catch (RuntimeException e) {
+      if (policy.getMaxAttempts() > 1 && RetryPolicy.isTransient(e)) {
+        return retryLater(policy, call, retryResult);
+      }
+      throw e;
+    }
+    if (policy.getMaxAttempts() > 1 && retryResult != null && retryResult.test(value)) {
+      return retryLater(policy, call, retryResult);
+    }
+    return value;
+  }
+
+  public <T> CompletableFuture<T> callAsync(String endpoint, Supplier<T> call,
+      Predicate<T> retryResult, Executor executor) {
+    CompletableFuture<T> result = new CompletableFuture<T>();
+    attempt(getPolicy(endpoint), call, retryResult, executor, executor, 1, result);
+    return result;
+  }
+
+  private <T> T retryLater(RetryPolicy policy, Supplier<T> call, Predicate<T> retryResult) {
+    CompletableFuture<T> result = new CompletableFuture<T>();
+    retries.incrementAndGet();
+    attempt(policy, call, retryResult, retryExecutor, delayed(policy, 1, retryExecutor), 2, result);
+    return YouTrackAsyncClient.join(result);
+  }
+
+  private <T> void attempt(final RetryPolicy policy, final Supplier<T> call,
+      final Predicate<T> retryResult, final Executor executor, Executor attemptExecutor,
+      final int attempt, final CompletableFuture<T> result) {
+    CompletableFuture.supplyAsync(() -> invoke(call), attemptExecutor).whenComplete(
+        (value, error) -> {
+          Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+          boolean attemptsLeft = attempt < policy.getMaxAttempts();
+          if (cause != null) {
+            if (attemptsLeft && RetryPolicy.isTransient(cause)) {
+              retries.incrementAndGet();
+              attempt(policy, call, retryResult, executor, delayed(policy, attempt, executor),
+                  attempt + 1, result);
+            } else {
+              if (RetryPolicy.isTransient(cause)) {
+                exhausted.incrementAndGet();
+              }
+              result.completeExceptionally(cause);
+            }
+          } else if (attemptsLeft && retryResult != null && retryResult.test(value)) {
+            retries.incrementAndGet();
+            attempt(policy, call, retryResult, executor, delayed(policy, attempt, executor),
+                attempt + 1, result);
+          } else {
+            result.complete(value);
+          }
+        });
+  }
+
+  private static Executor delayed(RetryPolicy policy, int retry, Executor executor) {
+    return CompletableFuture.delayedExecutor(policy.getDelay(retry), TimeUnit.MILLISECONDS,
+        executor);
+  }
+
+  private <T> T invoke(Supplier<T> call) {
+    circuitBreaker.acquire();
+    try {
+      T value = call.get();
+      circuitBreaker.onSuccess();
+      return value;
+    } catch (RuntimeException e) {
+      if (RetryPolicy.isTransient(e)) {
+        circuitBreaker.onFailure();
+      } else {
+        // server answered with an error, so it is up
+        circuitBreaker.onSuccess();
+      }
+      throw e;
+    }
+  }
+
+}
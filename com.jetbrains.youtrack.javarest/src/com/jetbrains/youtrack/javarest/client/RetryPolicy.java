@@ -0,0 +1,82 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.UniformInterfaceException;
+
+/**
+ * How many times and how often a failed call is repeated. Delay grows exponentially from initial
+ * delay up to max delay, actual delay is randomly chosen from upper half of that value so that
+ * clients failed together do not retry together.
+ */
+public class RetryPolicy {
+
+  public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+  public static final int DEFAULT_INITIAL_DELAY = 200;
+
+  public static final int DEFAULT_MAX_DELAY = 5 * 1000;
+
+  /** single attempt, used for calls which are not safe to repeat */
+  public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+  private final int maxAttempts;
+
+  private final long initialDelay;
+
+  private final long maxDelay;
+
+  /**
+   * @param maxAttempts number of attempts including the first one
+   */
+  public RetryPolicy(int maxAttempts, long initialDelay, long maxDelay) {
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.initialDelay = Math.max(0, initialDelay);
+    this.maxDelay = Math.max(this.initialDelay, maxDelay);
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public long getInitialDelay() {
+    return initialDelay;
+  }
+
+  public long getMaxDelay() {
+    return maxDelay;
+  }
+
+  /**
+   * @param retry number of retry, starting from 1
+   * @return delay in milliseconds before given retry
+   */
+  public long getDelay(int retry) {
+    long delay = initialDelay;
+    for (int i = 1; i < retry && delay < maxDelay; i++) {
+      delay *= 2;
+    }
+    delay = Math.min(delay, maxDelay);
+    if (delay <= 1) {
+      return delay;
+    }
+    return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+  }
+
+  /**
+   * @return true for network failures and statuses telling that server is temporarily
+   *         unavailable, repeating of other errors gives the same result
+   */
+  public static boolean isTransient(Throwable e) {
+    if (e instanceof ClientHandlerException) {
+      return true;
+    }
+    if (e instanceof UniformInterfaceException) {
+      int status = ((UniformInterfaceException) e).getResponse().getStatus();
+      return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+    return false;
+  }
+
+}
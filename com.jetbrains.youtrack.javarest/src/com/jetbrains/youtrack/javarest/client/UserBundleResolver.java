@@ -0,0 +1,247 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.jetbrains.youtrack.javarest.utils.UserBundleValues;
+import com.jetbrains.youtrack.javarest.utils.UserGroupValue;
+import com.jetbrains.youtrack.javarest.utils.UserValue;
+import com.sun.jersey.api.client.UniformInterfaceException;
+
+/**
+ * Resolves user bundles with full user info. Pages of all groups and then unknown users are
+ * requested concurrently, at most parallelism requests at once. Users are kept in
+ * {@link UserDirectory} of the client, only missing and stale ones are requested. A user which
+ * can't be read stays in the bundle with bare login. Waiting happens only in the calling thread,
+ * so the executor may be any size.
+ */
+public class UserBundleResolver {
+
+  public static final int DEFAULT_PARALLELISM = 8;
+
+  private static final Log log = LogFactory.getLog(UserBundleResolver.class);
+
+  private final YouTrackClient client;
+
+  private final UserDirectory directory;
+
+  private final Executor executor;
+
+  private volatile int parallelism = DEFAULT_PARALLELISM;
+
+  private final AtomicLong pageRequests = new AtomicLong();
+
+  private final AtomicLong userRequests = new AtomicLong();
+
+  private final AtomicLong knownUserHits = new AtomicLong();
+
+  private final AtomicLong failedUsers = new AtomicLong();
+
+  private volatile long lastResolveTime = 0;
+
+  /**
+   * @param executor executor for requests
+   */
+  public UserBundleResolver(YouTrackClient client, UserDirectory directory, Executor executor) {
+    this.client = client;
+    this.directory = directory;
+    this.executor = executor;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public void setParallelism(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  public UserBundleValues resolve(String bundlename) {
+    long start = System.currentTimeMillis();
+    long pagesBefore = pageRequests.get();
+    long usersBefore = userRequests.get();
+    long hitsBefore = knownUserHits.get();
+
+    // read result may be shared with concurrent callers, so users are added to a copy
+    UserBundleValues userBundleValues = client.getUserBundleValues(bundlename).copy();
+    if (userBundleValues.getUserGroupValues() != null) {
+      for (List<UserValue> users : readGroups(userBundleValues.getUserGroupValues())) {
+        userBundleValues.addUsersFromGroup(new LinkedList<UserValue>(users));
+      }
+    }
+
+    // one entry per login, user may be in the bundle and in several groups
+    Map<String, UserValue> logins = new LinkedHashMap<String, UserValue>();
+    if (userBundleValues.getAllUsers() != null) {
+      for (UserValue user : userBundleValues.getAllUsers()) {
+        logins.put(user.getValue(), user);
+        if (user.getFullName() != null) {
+          // server already sent everything getUser would return
+          directory.put(user);
+        }
+      }
+    }
+    List<String> missing = directory.getMissingOrStale(logins.keySet());
+    knownUserHits.addAndGet(logins.size() - missing.size());
+    List<Supplier<UserValue>> lookups = new ArrayList<Supplier<UserValue>>();
+    for (final String login : missing) {
+      lookups.add(() -> {
+        userRequests.incrementAndGet();
+        try {
+          return client.getUser(login);
+        } catch (RuntimeException e) {
+          failedUsers.incrementAndGet();
+          log.warn("Failed to get user " + login + ", login is used instead: " + e.getMessage());
+          return null;
+        }
+      });
+    }
+    for (UserValue user : fetchAll(lookups)) {
+      if (user != null) {
+        directory.put(user);
+      }
+    }
+    for (String login : logins.keySet()) {
+      UserValue user = directory.peek(login);
+      userBundleValues.addFullUser(user != null ? user : logins.get(login));
+    }
+
+    lastResolveTime = System.currentTimeMillis() - start;
+    if (log.isDebugEnabled()) {
+      log.debug("User bundle " + bundlename + ": " + logins.size() + " users, "
+          + (pageRequests.get() - pagesBefore) + " group pages, "
+          + (userRequests.get() - usersBefore) + " user requests, "
+          + (knownUserHits.get() - hitsBefore) + " known users, " + lastResolveTime + " ms");
+    }
+    return userBundleValues;
+  }
+
+  /**
+   * First pages of all groups go at once. Page size of the server is learned from the longest
+   * first page, then open groups are read ahead several pages per round.
+   */
+  private List<List<UserValue>> readGroups(List<UserGroupValue> groupValues) {
+    List<List<UserValue>> groups = new ArrayList<List<UserValue>>();
+    List<Supplier<List<UserValue>>> firstPages = new ArrayList<Supplier<List<UserValue>>>();
+    for (UserGroupValue group : groupValues) {
+      groups.add(new ArrayList<UserValue>());
+      firstPages.add(page(group.getValue(), 0));
+    }
+    List<List<UserValue>> pages = fetchAll(firstPages);
+
+    int pageSize = 0;
+    for (List<UserValue> page : pages) {
+      pageSize = Math.max(pageSize, page.size());
+    }
+    if (pageSize == 0) {
+      return groups;
+    }
+
+    List<Integer> open = new ArrayList<Integer>();
+    for (int i = 0; i < pages.size(); i++) {
+      groups.get(i).addAll(pages.get(i));
+      if (pages.get(i).size() == pageSize) {
+        open.add(i);
+      }
+    }
+
+    while (!open.isEmpty()) {
+      int ahead = Math.max(1, parallelism / open.size());
+      List<Supplier<List<UserValue>>> round = new ArrayList<Supplier<List<UserValue>>>();
+      for (int group : open) {
+        int offset = groups.get(group).size();
+        for (int i = 0; i < ahead; i++) {
+          round.add(page(groupValues.get(group).getValue(), offset + i * pageSize));
+        }
+      }
+      pages = fetchAll(round);
+
+      List<Integer> stillOpen = new ArrayList<Integer>();
+      int index = 0;
+      for (int group : open) {
+        boolean complete = false;
+        for (int i = 0; i < ahead; i++) {
+          List<UserValue> page = pages.get(index++);
+          if (!complete) {
+            groups.get(group).addAll(page);
+            complete = page.size() < pageSize;
+          }
+        }
+        if (!complete) {
+          stillOpen.add(group);
+        }
+      }
+      open = stillOpen;
+    }
+    return groups;
+  }
+
+  private Supplier<List<UserValue>> page(final String group, final int start) {
+    return () -> {
+      pageRequests.incrementAndGet();
+      try {
+        List<UserValue> users = client.getUsersListInGroup(group, start).getUsers();
+        if (users == null) {
+          return new ArrayList<UserValue>();
+        }
+        for (UserValue user : users) {
+          directory.addGroup(user.getValue(), group);
+        }
+        return users;
+      } catch (UniformInterfaceException e) {
+        // You do not have permissions to read user,
+        // supress for possibility create issue.
+        return new ArrayList<UserValue>();
+      }
+    };
+  }
+
+  private <T> List<T> fetchAll(List<Supplier<T>> calls) {
+    return BoundedCalls.call(calls, parallelism, executor);
+  }
+
+  /**
+   * @return number of group page requests sent
+   */
+  public long getPageRequestCount() {
+    return pageRequests.get();
+  }
+
+  /**
+   * @return number of single user requests sent
+   */
+  public long getUserRequestCount() {
+    return userRequests.get();
+  }
+
+  /**
+   * @return number of users taken from directory instead of the server
+   */
+  public long getKnownUserHitCount() {
+    return knownUserHits.get();
+  }
+
+  /**
+   * @return number of users which failed to load and were left with bare login
+   */
+  public long getFailedUserCount() {
+    return failedUsers.get();
+  }
+
+  /**
+   * @return duration of last resolution in milliseconds
+   */
+  public long getLastResolveTime() {
+    return lastResolveTime;
+  }
+
+}
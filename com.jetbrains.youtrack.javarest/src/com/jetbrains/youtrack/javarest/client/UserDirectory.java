@@ -0,0 +1,210 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.jetbrains.youtrack.javarest.utils.UserValue;
+
+/**
+ * Users of one repository by login: full name, email and groups seen so far. All bundles of all
+ * projects share these entries instead of keeping own copies. Entries older than TTL are still
+ * used for display, but are reported by {@link #getMissingOrStale(Collection)} so callers refresh
+ * only them. When the directory is full, the least recently used entry is dropped.
+ */
+public class UserDirectory {
+
+  public static final long DEFAULT_TTL = 10 * 60 * 1000;
+
+  public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+  private static class UserEntry {
+
+    private UserValue user;
+
+    private final Set<String> groups = new LinkedHashSet<String>();
+
+    /** 0 if user info was never loaded */
+    private long loadedAt = 0;
+  }
+
+  private volatile long ttl;
+
+  private volatile int maxEntries;
+
+  private final LinkedHashMap<String, UserEntry> entries = new LinkedHashMap<String, UserEntry>(
+      16, 0.75f, true) {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, UserEntry> eldest) {
+      if (size() > maxEntries) {
+        evictions++;
+        return true;
+      }
+      return false;
+    }
+  };
+
+  private long hits = 0;
+
+  private long misses = 0;
+
+  private long evictions = 0;
+
+  public UserDirectory() {
+    this(DEFAULT_TTL, DEFAULT_MAX_ENTRIES);
+  }
+
+  /**
+   * @param ttl time in milliseconds after which user info is refreshed
+   */
+  public UserDirectory(long ttl, int maxEntries) {
+    this.ttl = Math.max(0, ttl);
+    this.maxEntries = Math.max(1, maxEntries);
+  }
+
+  public long getTtl() {
+    return ttl;
+  }
+
+  public void setTtl(long ttl) {
+    this.ttl = Math.max(0, ttl);
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public synchronized void setMaxEntries(int maxEntries) {
+    this.maxEntries = Math.max(1, maxEntries);
+    while (entries.size() > this.maxEntries) {
+      entries.remove(entries.keySet().iterator().next());
+      evictions++;
+    }
+  }
+
+  private boolean isFresh(UserEntry entry, long now) {
+    return entry != null && entry.user != null && now - entry.loadedAt < ttl;
+  }
+
+  /**
+   * @return user info loaded not longer than TTL ago, null otherwise
+   */
+  public synchronized UserValue get(String login) {
+    UserEntry entry = entries.get(login);
+    if (isFresh(entry, System.currentTimeMillis())) {
+      hits++;
+      return entry.user;
+    }
+    misses++;
+    return null;
+  }
+
+  /**
+   * @return user info of any age, null if never loaded
+   */
+  public synchronized UserValue peek(String login) {
+    UserEntry entry = entries.get(login);
+    return entry != null ? entry.user : null;
+  }
+
+  /**
+   * @return full name of user if known, otherwise the given one
+   */
+  public String getFullName(String login, String fallback) {
+    UserValue user = login != null ? peek(login) : null;
+    return user != null && user.getFullName() != null ? user.getFullName() : fallback;
+  }
+
+  public synchronized void put(UserValue user) {
+    if (user == null || user.getValue() == null) {
+      return;
+    }
+    UserEntry entry = getOrCreate(user.getValue());
+    entry.user = user;
+    entry.loadedAt = System.currentTimeMillis();
+  }
+
+  public synchronized void addGroup(String login, String group) {
+    if (login != null && group != null) {
+      getOrCreate(login).groups.add(group);
+    }
+  }
+
+  public synchronized Set<String> getGroups(String login) {
+    UserEntry entry = entries.get(login);
+    return entry != null
+        ? Collections.unmodifiableSet(new LinkedHashSet<String>(entry.groups))
+        : Collections.<String>emptySet();
+  }
+
+  private UserEntry getOrCreate(String login) {
+    UserEntry entry = entries.get(login);
+    if (entry == null) {
+      entry = new UserEntry();
+      entries.put(login, entry);
+    }
+    return entry;
+  }
+
+  /**
+   * @return logins which were never loaded or were loaded longer than TTL ago
+   */
+  public synchronized List<String> getMissingOrStale(Collection<String> logins) {
+    long now = System.currentTimeMillis();
+    List<String> result = new LinkedList<String>();
+    for (String login : logins) {
+      if (isFresh(entries.get(login), now)) {
+        hits++;
+      } else {
+        misses++;
+        result.add(login);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Mark all entries stale, values stay available until refreshed.
+   */
+  public synchronized void expireAll() {
+    for (UserEntry entry : entries.values()) {
+      entry.loadedAt = 0;
+    }
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  /**
+   * Value of user fields as shown in task editor.
+   */
+  public static String format(String login, String fullName) {
+    return fullName + " (" + login + ")";
+  }
+
+}
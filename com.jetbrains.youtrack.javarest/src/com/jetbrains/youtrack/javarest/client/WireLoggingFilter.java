@@ -0,0 +1,350 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.sun.jersey.api.client.AbstractClientRequestAdapter;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientRequestAdapter;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Logs HTTP traffic without buffering entities: bodies are copied to the log while the request is
+ * written and the response is read by its consumer. Credentials are removed according to
+ * {@link RedactionPolicy}. Does nothing if info level of the log is disabled.
+ */
+public class WireLoggingFilter extends ClientFilter {
+
+  public enum Mode {
+    /** filter is not installed */
+    OFF,
+    /** request line, status and headers */
+    HEADERS,
+    /** headers of every request, bodies of every n-th request truncated to the body limit */
+    SAMPLED,
+    /** headers and complete bodies, written to log in chunks of the body limit */
+    FULL
+  }
+
+  public static final int DEFAULT_BODY_LIMIT = 4096;
+
+  public static final int DEFAULT_SAMPLE_RATE = 10;
+
+  private static final String REDACTED = "***";
+
+  private static final String REQUEST_PREFIX = "> ";
+
+  private static final String RESPONSE_PREFIX = "< ";
+
+  /**
+   * What must never reach the log: header values, query parameters and bodies of requests to
+   * sensitive paths.
+   */
+  public static class RedactionPolicy {
+
+    private final Set<String> headers = new HashSet<String>();
+
+    private final Set<String> queryParameters = new HashSet<String>();
+
+    private final Set<String> paths = new HashSet<String>();
+
+    public static RedactionPolicy createDefault() {
+      RedactionPolicy policy = new RedactionPolicy();
+      policy.addHeader("Authorization");
+      policy.addHeader("Proxy-Authorization");
+      policy.addHeader("Cookie");
+      policy.addHeader("Set-Cookie");
+      policy.addQueryParameter("password");
+      policy.addQueryParameter("token");
+      policy.addPath("/user/login");
+      return policy;
+    }
+
+    public void addHeader(String name) {
+      headers.add(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    public void addQueryParameter(String name) {
+      queryParameters.add(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Bodies of requests whose path contains given fragment are never logged.
+     */
+    public void addPath(String pathFragment) {
+      paths.add(pathFragment);
+    }
+
+    public boolean isSensitiveHeader(String name) {
+      return headers.contains(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    public boolean isSensitivePath(URI uri) {
+      String path = uri.getPath();
+      if (path != null) {
+        for (String fragment : paths) {
+          if (path.contains(fragment)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    public String redact(URI uri) {
+      String query = uri.getRawQuery();
+      if (query == null) {
+        return uri.toString();
+      }
+      StringBuilder redacted = new StringBuilder();
+      for (String parameter : query.split("&")) {
+        if (redacted.length() > 0) {
+          redacted.append('&');
+        }
+        int eq = parameter.indexOf('=');
+        String name = eq < 0 ? parameter : parameter.substring(0, eq);
+        if (eq >= 0 && queryParameters.contains(name.toLowerCase(Locale.ENGLISH))) {
+          redacted.append(name).append('=').append(REDACTED);
+        } else {
+          redacted.append(parameter);
+        }
+      }
+      String uriString = uri.toString();
+      return uriString.substring(0, uriString.indexOf('?') + 1) + redacted;
+    }
+  }
+
+  private final Log log;
+
+  private final Mode mode;
+
+  private final int bodyLimit;
+
+  private final int sampleRate;
+
+  private final RedactionPolicy redactionPolicy;
+
+  private final AtomicLong requestIds = new AtomicLong();
+
+  public WireLoggingFilter(Mode mode) {
+    this(mode, DEFAULT_BODY_LIMIT, DEFAULT_SAMPLE_RATE, RedactionPolicy.createDefault(),
+        LogFactory.getLog(WireLoggingFilter.class));
+  }
+
+  public WireLoggingFilter(Mode mode, int bodyLimit, int sampleRate,
+      RedactionPolicy redactionPolicy, Log log) {
+    this.mode = mode;
+    this.bodyLimit = Math.max(1, bodyLimit);
+    this.sampleRate = Math.max(1, sampleRate);
+    this.redactionPolicy = redactionPolicy;
+    this.log = log;
+  }
+
+  @Override
+  public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+    if (mode == Mode.OFF || !log.isInfoEnabled()) {
+      return getNext().handle(request);
+    }
+
+    long id = requestIds.incrementAndGet();
+    boolean logBodies = isBodyLogged(id, request.getURI());
+
+    StringBuilder message = new StringBuilder();
+    message.append(id).append(' ').append(REQUEST_PREFIX).append(request.getMethod()).append(' ')
+        .append(redactionPolicy.redact(request.getURI()));
+    appendHeaders(message, id, REQUEST_PREFIX, request.getHeaders());
+    log.info(message.toString());
+
+    if (logBodies && request.getEntity() != null) {
+      request.setAdapter(new LoggingRequestAdapter(request.getAdapter(), id));
+    }
+
+    long start = System.currentTimeMillis();
+    ClientResponse response = getNext().handle(request);
+
+    message = new StringBuilder();
+    message.append(id).append(' ').append(RESPONSE_PREFIX).append(response.getStatus())
+        .append(" in ").append(System.currentTimeMillis() - start).append(" ms");
+    appendHeaders(message, id, RESPONSE_PREFIX, response.getHeaders());
+    log.info(message.toString());
+
+    if (logBodies && response.hasEntity()) {
+      response.setEntityInputStream(new LoggingInputStream(response.getEntityInputStream(), id));
+    }
+    return response;
+  }
+
+  private boolean isBodyLogged(long id, URI uri) {
+    if (redactionPolicy.isSensitivePath(uri)) {
+      return false;
+    }
+    switch (mode) {
+      case FULL:
+        return true;
+      case SAMPLED:
+        return id % sampleRate == 0;
+      default:
+        return false;
+    }
+  }
+
+  private void appendHeaders(StringBuilder message, long id, String prefix,
+      Map<String, ? extends List<?>> headers) {
+    for (Map.Entry<String, ? extends List<?>> header : headers.entrySet()) {
+      for (Object value : header.getValue()) {
+        message.append('\n').append(id).append(' ').append(prefix).append(header.getKey())
+            .append(": ");
+        message.append(redactionPolicy.isSensitiveHeader(header.getKey()) ? REDACTED : value);
+      }
+    }
+  }
+
+  /**
+   * Collects copied body bytes, hands them to log when the limit is reached. In sampled mode
+   * everything after the first chunk is dropped.
+   */
+  private class BodyLog {
+
+    private final long id;
+
+    private final String prefix;
+
+    private final ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+
+    private boolean truncated;
+
+    private boolean flushed;
+
+    BodyLog(long id, String prefix) {
+      this.id = id;
+      this.prefix = prefix;
+    }
+
+    void write(byte[] b, int off, int len) {
+      while (len > 0) {
+        if (chunk.size() >= bodyLimit) {
+          if (mode != Mode.FULL) {
+            truncated = true;
+            return;
+          }
+          logChunk();
+        }
+        int count = Math.min(len, bodyLimit - chunk.size());
+        chunk.write(b, off, count);
+        off += count;
+        len -= count;
+      }
+    }
+
+    void close() {
+      if (!flushed) {
+        flushed = true;
+        logChunk();
+      }
+    }
+
+    private void logChunk() {
+      if (chunk.size() > 0) {
+        log.info(id + " " + prefix + new String(chunk.toByteArray(), StandardCharsets.UTF_8)
+            + (truncated ? "..." : ""));
+        chunk.reset();
+      }
+    }
+  }
+
+  private class LoggingInputStream extends FilterInputStream {
+
+    private final BodyLog body;
+
+    LoggingInputStream(InputStream in, long id) {
+      super(in);
+      this.body = new BodyLog(id, RESPONSE_PREFIX);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b == -1) {
+        body.close();
+      } else {
+        body.write(new byte[] {(byte) b}, 0, 1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read == -1) {
+        body.close();
+      } else {
+        body.write(b, off, read);
+      }
+      return read;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      body.close();
+      super.close();
+    }
+  }
+
+  private class LoggingRequestAdapter extends AbstractClientRequestAdapter {
+
+    private final long id;
+
+    LoggingRequestAdapter(ClientRequestAdapter adapter, long id) {
+      super(adapter);
+      this.id = id;
+    }
+
+    @Override
+    public OutputStream adapt(ClientRequest request, OutputStream entityOut) throws IOException {
+      final BodyLog body = new BodyLog(id, REQUEST_PREFIX);
+      return new FilterOutputStream(getAdapter().adapt(request, entityOut)) {
+
+        @Override
+        public void write(int b) throws IOException {
+          out.write(b);
+          body.write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          out.write(b, off, len);
+          body.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+          body.close();
+          super.close();
+        }
+      };
+    }
+  }
+
+}
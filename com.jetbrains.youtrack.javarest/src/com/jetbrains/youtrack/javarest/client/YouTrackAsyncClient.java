@@ -0,0 +1,310 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.jetbrains.youtrack.javarest.utils.BuildBundleValues;
+import com.jetbrains.youtrack.javarest.utils.EnumerationBundleValues;
+import com.jetbrains.youtrack.javarest.utils.GroupUsersList;
+import com.jetbrains.youtrack.javarest.utils.IntellisenseItem;
+import com.jetbrains.youtrack.javarest.utils.IntellisenseValues;
+import com.jetbrains.youtrack.javarest.utils.OwnedFieldBundleValues;
+import com.jetbrains.youtrack.javarest.utils.SavedSearch;
+import com.jetbrains.youtrack.javarest.utils.StateBundleValues;
+import com.jetbrains.youtrack.javarest.utils.UserBundleValues;
+import com.jetbrains.youtrack.javarest.utils.UserSavedSearch;
+import com.jetbrains.youtrack.javarest.utils.UserValue;
+import com.jetbrains.youtrack.javarest.utils.VersionBundleValues;
+import com.jetbrains.youtrack.javarest.utils.YouTrackTimeSettings;
+
+/**
+ * Non-blocking companion of {@link YouTrackClient}. Every call runs the blocking client method on
+ * the given executor, so independent requests can be started together and their latencies
+ * overlap. Failures complete the future exceptionally with the exception thrown by the client.
+ */
+public class YouTrackAsyncClient {
+
+  private final YouTrackClient client;
+
+  private final Executor executor;
+
+  public YouTrackAsyncClient(YouTrackClient client, Executor executor) {
+    if (client == null || executor == null) {
+      throw new IllegalArgumentException("Null client or executor for async client.");
+    }
+    this.client = client;
+    this.executor = executor;
+  }
+
+  public YouTrackClient getClient() {
+    return client;
+  }
+
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Wait for the result like {@link CompletableFuture#join()}, but rethrow the original runtime
+   * exception of the client instead of CompletionException wrapper.
+   */
+  public static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private <T> CompletableFuture<T> supply(Supplier<T> call) {
+    return CompletableFuture.supplyAsync(call, executor);
+  }
+
+  private CompletableFuture<Void> run(Runnable call) {
+    return CompletableFuture.runAsync(call, executor);
+  }
+
+  public CompletableFuture<Boolean> login(final String username, final String password) {
+    return supply(() -> client.login(username, password));
+  }
+
+  public CompletableFuture<Boolean> issueExist(final String issueId) {
+    return supply(() -> client.issueExist(issueId));
+  }
+
+  public CompletableFuture<YouTrackIssue> getIssue(final String id) {
+    return supply(() -> client.getIssue(id));
+  }
+
+  public CompletableFuture<YouTrackIssue> getIssue(final String id, final boolean wikifyDescription) {
+    return supply(() -> client.getIssue(id, wikifyDescription));
+  }
+
+  public CompletableFuture<String> getIssueWikifyDescription(final String id) {
+    return supply(() -> client.getIssueWikifyDescription(id));
+  }
+
+  public CompletableFuture<List<YouTrackIssue>> getIssuesInProject(final String projectname,
+      final String filter, final int after, final int max, final long updatedAfter) {
+    return supply(() -> client.getIssuesInProject(projectname, filter, after, max, updatedAfter));
+  }
+
+  public CompletableFuture<List<YouTrackIssue>> getIssuesInProject(final String projectname,
+      final int max) {
+    return supply(() -> client.getIssuesInProject(projectname, max));
+  }
+
+  public CompletableFuture<List<YouTrackIssue>> getIssuesByFilter(final String filterQuery,
+      final int max) {
+    return supply(() -> client.getIssuesByFilter(filterQuery, max));
+  }
+
+  public CompletableFuture<List<YouTrackIssue>> getIssuesByFilter(final String filterQuery,
+      final int after, final int max) {
+    return supply(() -> client.getIssuesByFilter(filterQuery, after, max));
+  }
+
+  public CompletableFuture<List<YouTrackIssue>> getIssuesByFilter(final String filterQuery) {
+    return supply(() -> client.getIssuesByFilter(filterQuery));
+  }
+
+  /**
+   * Consumer is called on the executor thread which reads the response.
+   */
+  public CompletableFuture<Integer> forEachIssue(final String filterQuery, final int max,
+      final Consumer<YouTrackIssue> consumer) {
+    return supply(() -> client.forEachIssue(filterQuery, 0, max, consumer));
+  }
+
+  public CompletableFuture<Integer> getNumberOfIssues(final String filterQuery) {
+    return client.getNumberOfIssuesAsync(filterQuery, executor);
+  }
+
+  public CompletableFuture<List<YouTrackProject>> getProjects() {
+    return supply(() -> client.getProjects());
+  }
+
+  public CompletableFuture<YouTrackProject> getProject(final String projectId) {
+    return supply(() -> client.getProject(projectId));
+  }
+
+  public CompletableFuture<String> putNewIssue(final YouTrackIssue issue) {
+    return supply(() -> client.putNewIssue(issue));
+  }
+
+  public CompletableFuture<Void> deleteIssue(final String issueId) {
+    return run(() -> client.deleteIssue(issueId));
+  }
+
+  public CompletableFuture<Void> applyCommand(final String issueId, final String command) {
+    return run(() -> client.applyCommand(issueId, command));
+  }
+
+  public CompletableFuture<Void> addComment(final String issueId, final String comment) {
+    return run(() -> client.addComment(issueId, comment));
+  }
+
+  public CompletableFuture<Void> addNewTag(final String issueId, final String tagName) {
+    return run(() -> client.addNewTag(issueId, tagName));
+  }
+
+  public CompletableFuture<Void> removeTag(final String issueId, final String tagName) {
+    return run(() -> client.removeTag(issueId, tagName));
+  }
+
+  public CompletableFuture<Void> updateIssueSummaryAndDescription(final String issueId,
+      final String newSummary, final String newDescription) {
+    return run(() -> client.updateIssueSummaryAndDescription(issueId, newSummary, newDescription));
+  }
+
+  public CompletableFuture<Void> updateIssue(final String oldIssueId, final YouTrackIssue newIssue) {
+    return run(() -> client.updateIssue(oldIssueId, newIssue));
+  }
+
+  public CompletableFuture<LinkedList<YouTrackCustomField>> getProjectCustomFields(
+      final String projectname) {
+    return supply(() -> client.getProjectCustomFields(projectname));
+  }
+
+  public CompletableFuture<YouTrackCustomField> getProjectCustomField(final String projectname,
+      final String fieldname) {
+    return supply(() -> client.getProjectCustomField(projectname, fieldname));
+  }
+
+  public CompletableFuture<Set<String>> getProjectCustomFieldNames(final String projectname) {
+    return supply(() -> client.getProjectCustomFieldNames(projectname));
+  }
+
+  public CompletableFuture<EnumerationBundleValues> getEnumerationBundleValues(
+      final String bundlename) {
+    return supply(() -> client.getEnumerationBundleValues(bundlename));
+  }
+
+  public CompletableFuture<OwnedFieldBundleValues> getOwnedFieldBundleValues(
+      final String bundlename) {
+    return supply(() -> client.getOwnedFieldBundleValues(bundlename));
+  }
+
+  public CompletableFuture<BuildBundleValues> getBuildBundleValues(final String bundlename) {
+    return supply(() -> client.getBuildBundleValues(bundlename));
+  }
+
+  public CompletableFuture<StateBundleValues> getStateBundleValues(final String bundlename) {
+    return supply(() -> client.getStateBundleValues(bundlename));
+  }
+
+  public CompletableFuture<Boolean> isStateResolved(final String bundlename, final String state) {
+    return supply(() -> client.isStateResolved(bundlename, state));
+  }
+
+  public CompletableFuture<VersionBundleValues> getVersionBundleValues(final String bundlename) {
+    return supply(() -> client.getVersionBundleValues(bundlename));
+  }
+
+  public CompletableFuture<UserBundleValues> getUserBundleValues(final String bundlename) {
+    return supply(() -> client.getUserBundleValues(bundlename));
+  }
+
+  public CompletableFuture<UserBundleValues> getAllUserBundleValues(final String bundlename) {
+    return supply(() -> client.getAllUserBundleValues(bundlename));
+  }
+
+  public CompletableFuture<UserValue> getUser(final String login) {
+    return supply(() -> client.getUser(login));
+  }
+
+  public CompletableFuture<GroupUsersList> getUsersListInGroup(final String groupname,
+      final int start) {
+    return supply(() -> client.getUsersListInGroup(groupname, start));
+  }
+
+  public CompletableFuture<IntellisenseValues> intellisenseSearchValues(final String filter,
+      final int caret) {
+    return supply(() -> client.intellisenseSearchValues(filter, caret));
+  }
+
+  public CompletableFuture<IntellisenseValues> intellisenseSearchValues(final String filter) {
+    return supply(() -> client.intellisenseSearchValues(filter));
+  }
+
+  public CompletableFuture<LinkedList<IntellisenseItem>> intellisenseItems(final String filter,
+      final int caret) {
+    return supply(() -> client.intellisenseItems(filter, caret));
+  }
+
+  public CompletableFuture<String[]> intellisenseOptions(final String filter, final int caret) {
+    return supply(() -> client.intellisenseOptions(filter, caret));
+  }
+
+  public CompletableFuture<String[]> intellisenseFullOptions(final String filter, final int caret) {
+    return supply(() -> client.intellisenseFullOptions(filter, caret));
+  }
+
+  public CompletableFuture<IntellisenseValues> intellisenseCommandValues(final String command,
+      final int caret, final String issueId) {
+    return supply(() -> client.intellisenseCommandValues(command, caret, issueId));
+  }
+
+  public CompletableFuture<IntellisenseValues> intellisenseCommandValues(final String command,
+      final String issueId) {
+    return supply(() -> client.intellisenseCommandValues(command, issueId));
+  }
+
+  public CompletableFuture<LinkedList<IntellisenseItem>> intellisenseCommandItems(
+      final String command, final int caret, final String issueId) {
+    return supply(() -> client.intellisenseCommandItems(command, caret, issueId));
+  }
+
+  public CompletableFuture<String[]> intellisenseCommandOptions(final String command,
+      final int caret, final String issueId) {
+    return supply(() -> client.intellisenseCommandOptions(command, caret, issueId));
+  }
+
+  public CompletableFuture<String[]> intellisenseCommandFullOptions(final String command,
+      final int caret, final String issueId) {
+    return supply(() -> client.intellisenseCommandFullOptions(command, caret, issueId));
+  }
+
+  public CompletableFuture<LinkedList<String>> getSavedSearchesNames() {
+    return supply(() -> client.getSavedSearchesNames());
+  }
+
+  public CompletableFuture<LinkedList<SavedSearch>> getSavedSearches() {
+    return supply(() -> client.getSavedSearches());
+  }
+
+  public CompletableFuture<SavedSearch> getSavedSearch(final String searchname) {
+    return supply(() -> client.getSavedSearch(searchname));
+  }
+
+  public CompletableFuture<LinkedList<UserSavedSearch>> getSavedSearchesForUser(
+      final String username) {
+    return supply(() -> client.getSavedSearchesForUser(username));
+  }
+
+  public CompletableFuture<LinkedList<String>> getSavedSearchesNamesForUser(final String username) {
+    return supply(() -> client.getSavedSearchesNamesForUser(username));
+  }
+
+  public CompletableFuture<String[]> getUserTags() {
+    return supply(() -> client.getUserTags());
+  }
+
+  public CompletableFuture<String[]> getAllLinkTypeCommands() {
+    return supply(() -> client.getAllLinkTypeCommands());
+  }
+
+  public CompletableFuture<YouTrackTimeSettings> getTimeTrackingSettings() {
+    return supply(() -> client.getTimeTrackingSettings());
+  }
+
+}
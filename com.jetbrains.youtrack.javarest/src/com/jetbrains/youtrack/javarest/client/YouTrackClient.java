@@ -1,27 +1,33 @@
 package com.jetbrains.youtrack.javarest.client;
 
+import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import javax.ws.rs.core.MediaType;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlValue;
 
-import com.jetbrains.youtrack.javarest.client.YouTrackCustomField.YouTrackCustomFieldType;
+import com.jetbrains.youtrack.javarest.client.IssueCommandCompiler.IssueUpdate;
 import com.jetbrains.youtrack.javarest.utils.BuildBundleValues;
 import com.jetbrains.youtrack.javarest.utils.EnumerationBundleValues;
 import com.jetbrains.youtrack.javarest.utils.GroupUsersList;
 import com.jetbrains.youtrack.javarest.utils.IntellisenseItem;
 import com.jetbrains.youtrack.javarest.utils.IntellisenseValues;
+import com.jetbrains.youtrack.javarest.utils.NetworkExecutors;
 import com.jetbrains.youtrack.javarest.utils.OwnedFieldBundleValues;
 import com.jetbrains.youtrack.javarest.utils.SavedSearch;
 import com.jetbrains.youtrack.javarest.utils.SavedSearches;
 import com.jetbrains.youtrack.javarest.utils.StateBundleValues;
 import com.jetbrains.youtrack.javarest.utils.StateValue;
 import com.jetbrains.youtrack.javarest.utils.UserBundleValues;
-import com.jetbrains.youtrack.javarest.utils.UserGroupValue;
 import com.jetbrains.youtrack.javarest.utils.UserSavedSearch;
 import com.jetbrains.youtrack.javarest.utils.UserSavedSearches;
 import com.jetbrains.youtrack.javarest.utils.UserValue;
@@ -30,7 +36,6 @@ import com.jetbrains.youtrack.javarest.utils.YouTrackTimeSettings;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.UniformInterfaceException;
 import com.sun.jersey.api.client.WebResource;
-import com.sun.jersey.api.client.filter.HTTPBasicAuthFilter;
 import com.sun.jersey.api.representation.Form;
 
 /**
@@ -39,14 +44,142 @@ import com.sun.jersey.api.representation.Form;
  */
 public class YouTrackClient {
 
+  private static final String IF_UNMODIFIED_SINCE = "If-Unmodified-Since";
+
+  private static final int PRECONDITION_FAILED = 412;
+
+  /**
+   * Representation requested for issues, issue lists, projects, custom fields and bundles. Other
+   * endpoints are always read as XML.
+   */
+  public enum WireFormat {
+    XML(MediaType.APPLICATION_XML), JSON(MediaType.APPLICATION_JSON);
+
+    private final String mediaType;
+
+    private WireFormat(String mediaType) {
+      this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+      return mediaType;
+    }
+  }
+
   private String username = null;
 
   private String password = null;
 
   private WebResource service;
 
+  private final RequestCoalescer coalescer = new RequestCoalescer();
+
+  private volatile WireFormat wireFormat = WireFormat.XML;
+
+  private final ResilientCaller resilience;
+
+  private final AuthenticationManager authentication;
+
+  private final UserDirectory userDirectory = new UserDirectory();
+
+  private final UserBundleResolver userBundleResolver;
+
+  private final ProjectSchemaLoader projectSchemaLoader;
+
+  private final BundleCache bundleCache = new BundleCache();
+
   public YouTrackClient(WebResource resource) {
+    this(resource, new ResilientCaller(NetworkExecutors.getSharedExecutor()),
+        NetworkExecutors.getSharedExecutor());
+  }
+
+  /**
+   * @param executor executor for concurrent requests of user and schema loading
+   */
+  public YouTrackClient(WebResource resource, ResilientCaller resilience, Executor executor) {
     this.service = resource;
+    this.resilience = resilience;
+    this.authentication = new AuthenticationManager(resource.path("/user/login").getURI());
+    this.service.addFilter(authentication);
+    this.userBundleResolver = new UserBundleResolver(this, userDirectory, executor);
+    this.projectSchemaLoader = new ProjectSchemaLoader(this, executor);
+  }
+
+  /**
+   * @return users of the repository shared by all bundles
+   */
+  public UserDirectory getUserDirectory() {
+    return userDirectory;
+  }
+
+  public UserBundleResolver getUserBundleResolver() {
+    return userBundleResolver;
+  }
+
+  /**
+   * @return bundle values shared by fields of all projects of the repository
+   */
+  public BundleCache getBundleCache() {
+    return bundleCache;
+  }
+
+  public ProjectSchemaLoader getProjectSchemaLoader() {
+    return projectSchemaLoader;
+  }
+
+  public WireFormat getWireFormat() {
+    return wireFormat;
+  }
+
+  public void setWireFormat(WireFormat wireFormat) {
+    this.wireFormat = wireFormat != null ? wireFormat : WireFormat.XML;
+  }
+
+  private String getMediaType() {
+    return wireFormat.getMediaType();
+  }
+
+  public AuthenticationManager getAuthenticationManager() {
+    return authentication;
+  }
+
+  /**
+   * @return retry policies and circuit breaker used by this client
+   */
+  public ResilientCaller getResilientCaller() {
+    return resilience;
+  }
+
+  /**
+   * Idempotent GET: identical concurrent calls share one request, transient failures are retried.
+   * Calls in different wire formats are not identical. Callers get the same result object, so only
+   * reads whose results callers never change go through here; projects and custom fields, which
+   * get their schema and bundles set after loading, are read by {@link #readOwn(Supplier)}.
+   */
+  private <T> T read(String key, final Supplier<T> call) {
+    return coalescer.execute(getWireFormat() + ":" + key,
+        () -> resilience.call(ResilientCaller.ENDPOINT_READ, call));
+  }
+
+  /**
+   * Idempotent GET with retries, every caller sends own request and gets own result.
+   */
+  private <T> T readOwn(final Supplier<T> call) {
+    return resilience.call(ResilientCaller.ENDPOINT_READ, call);
+  }
+
+  /**
+   * @return coalescer of identical concurrent reads with deduplication counters
+   */
+  public RequestCoalescer getRequestCoalescer() {
+    return coalescer;
+  }
+
+  /**
+   * @return view of this client whose calls run on executor and return CompletableFuture
+   */
+  public YouTrackAsyncClient async(Executor executor) {
+    return new YouTrackAsyncClient(this, executor);
   }
 
   public static ClientResponse checkClientResponse(ClientResponse response, int code, String message) {
@@ -59,20 +192,39 @@ public class YouTrackClient {
     return response;
   }
 
+  /**
+   * Open session with given credentials. Password starting with "perm:" is taken as permanent
+   * token: no session is needed, token is only checked.
+   */
   public boolean login(final String username, final String password) {
     if (username == null || password == null || "".equals(username) || "".equals(password)) {
       throw new RuntimeException("Failed : NULL username or password ");
+    }
+    this.username = username;
+    this.password = password;
+    if (AuthenticationManager.isPermanentToken(password)) {
+      authentication.setToken(password);
+      ClientResponse response =
+          service.path("/project/all").accept("application/xml").get(ClientResponse.class);
+      try {
+        checkClientResponse(response, 200, "Failed to login");
+      } finally {
+        response.close();
+      }
     } else {
-      checkClientResponse(
-          service.path("/user/login").queryParam("login", username)
-              .queryParam("password", password).post(ClientResponse.class), 200, "Failed to login");
+      authentication.setCredentials(username, password);
+      authentication.login();
     }
-
-    this.setPassword(password);
-    this.setUsername(username);
     return true;
   }
 
+  /**
+   * Authenticate all requests with permanent token instead of login and password.
+   */
+  public void setPermanentToken(String token) {
+    authentication.setToken(token);
+  }
+
   public boolean loginWithCredentials() {
     return login(getUsername(), getPassword());
   }
@@ -86,15 +238,15 @@ public class YouTrackClient {
     return getIssue(id, false);
   }
 
-  public YouTrackIssue getIssue(String id, boolean wikifyDescription) {
+  public YouTrackIssue getIssue(final String id, final boolean wikifyDescription) {
     if (id == null) {
       throw new RuntimeException("Null issue id");
     } else {
       YouTrackIssue issue =
-          service.path("/issue/").path(id)
+          resilience.call(ResilientCaller.ENDPOINT_READ, () -> service.path("/issue/").path(id)
               .queryParam("wikifyDescription", String.valueOf(wikifyDescription))
-              .accept("application/xml").get(YouTrackIssue.class);
-      issue.mapFields();
+              .accept(getMediaType()).get(YouTrackIssue.class));
+      issue.mapFields(userDirectory);
       return issue;
     }
   }
@@ -110,19 +262,62 @@ public class YouTrackClient {
     return "";
   }
 
-  public List<YouTrackIssue> getIssuesInProject(String projectname, String filter, int after,
-      int max, long updatedAfter) {
+  public List<YouTrackIssue> getIssuesInProject(final String projectname, final String filter,
+      final int after, final int max, final long updatedAfter) {
+    final WebResource request = issuesInProject(projectname, filter, after, max, updatedAfter);
     try {
-      return service.path("/issue/byproject/").path(projectname).queryParam("filter", filter)
-          .queryParam("after", Integer.toString(after)).queryParam("max", Integer.toString(max))
-          .queryParam("updatedAfter", Long.toString(updatedAfter)).accept("application/xml")
-          .get(YouTrackIssuesList.class).getIssues();
+      return resilience.call(ResilientCaller.ENDPOINT_READ,
+          () -> request.accept(getMediaType()).get(YouTrackIssuesList.class).getIssues());
     } catch (RuntimeException e) {
       throw new RuntimeException("Exception while get list of issues in project :\n"
           + e.getMessage(), e);
     }
   }
 
+  /**
+   * Streaming variant of {@link #getIssuesInProject(String, String, int, int, long)}: issues are
+   * passed to consumer while the response is parsed.
+   * 
+   * @return number of issues read
+   */
+  public int forEachIssueInProject(final String projectname, final String filter,
+      final int after, final int max, final long updatedAfter, Consumer<YouTrackIssue> consumer) {
+    return readIssues(issuesInProject(projectname, filter, after, max, updatedAfter),
+        () -> getIssuesInProject(projectname, filter, after, max, updatedAfter), consumer);
+  }
+
+  private WebResource issuesInProject(String projectname, String filter, int after, int max,
+      long updatedAfter) {
+    return service.path("/issue/byproject/").path(projectname).queryParam("filter", filter)
+        .queryParam("after", Integer.toString(after)).queryParam("max", Integer.toString(max))
+        .queryParam("updatedAfter", Long.toString(updatedAfter));
+  }
+
+  /**
+   * XML lists are parsed by {@link IssueStreamReader}, so issues reach consumer while the rest of
+   * the list is transferred. Only getting the response is retried, a failure after an issue was
+   * passed on ends the call. JSON lists are read whole by list.
+   */
+  private int readIssues(final WebResource resource, Supplier<List<YouTrackIssue>> list,
+      Consumer<YouTrackIssue> consumer) {
+    if (getWireFormat() != WireFormat.XML) {
+      List<YouTrackIssue> issues = list.get();
+      for (YouTrackIssue issue : issues) {
+        consumer.accept(issue);
+      }
+      return issues.size();
+    }
+    ClientResponse response = resilience.call(ResilientCaller.ENDPOINT_READ, () -> {
+      ClientResponse received =
+          resource.accept(MediaType.APPLICATION_XML).get(ClientResponse.class);
+      if (received.getStatus() != 200) {
+        throw new UniformInterfaceException(received);
+      }
+      return received;
+    });
+    return IssueStreamReader.read(response.getEntityInputStream(), consumer);
+  }
+
   public List<YouTrackIssue> getIssuesInProject(String projectname, int max) {
     return getIssuesInProject(projectname, "", 0, max, 0);
   }
@@ -145,7 +340,7 @@ public class YouTrackClient {
   public void setPassword(String password) {
     this.password = password;
     if (username != null) {
-      this.service.addFilter(new HTTPBasicAuthFilter(username, password));
+      authentication.setCredentials(username, password);
     }
   }
 
@@ -160,26 +355,28 @@ public class YouTrackClient {
   public void setUsername(String username) {
     this.username = username;
     if (password != null) {
-      this.service.addFilter(new HTTPBasicAuthFilter(username, password));
+      authentication.setCredentials(username, password);
     }
   }
 
   public List<YouTrackProject> getProjects() {
     try {
-      return service.path("/project/all").accept("application/xml").get(YouTrackProjectsList.class)
-          .getProjects();
+      return readOwn(() -> service.path("/project/all")
+          .accept(getMediaType()).get(YouTrackProjectsList.class).getProjects());
     } catch (Exception e) {
       throw new RuntimeException("Exception while get list of projects\n" + e.getMessage());
     }
   }
 
-  public YouTrackProject getProject(String projectId) {
+  public YouTrackProject getProject(final String projectId) {
     try {
-      YouTrackProject project =
-          service.path("/admin/project/").path(projectId).accept("application/xml")
-              .get(YouTrackProject.class);
-      project.setProjectShortName(projectId);
-      return project;
+      return readOwn(() -> {
+        YouTrackProject project =
+            service.path("/admin/project/").path(projectId).accept(getMediaType())
+                .get(YouTrackProject.class);
+        project.setProjectShortName(projectId);
+        return project;
+      });
     } catch (Exception e) {
       throw new RuntimeException("Exception while get project by id\n" + e.getMessage());
     }
@@ -216,24 +413,71 @@ public class YouTrackClient {
   }
 
   public void applyCommand(final String issueId, final String command) {
+    applyCommand(issueId, command, null);
+  }
+
+  /**
+   * @param unmodifiedSince if not null, server must reject the command if issue was changed after
+   *        this time
+   * @throws IssueConflictException if issue was changed
+   */
+  public void applyCommand(final String issueId, final String command, Date unmodifiedSince) {
     if (issueId != null && command != null) {
       WebResource resource = service.path("/issue/").path(issueId).path("/execute");
       Form form = new Form();
       form.add("command", command);
-      checkClientResponse(
-          resource.type(MediaType.APPLICATION_FORM_URLENCODED).post(ClientResponse.class, form),
-          200, "Failed apply command " + command + " to issue " + issueId);
+      checkConflict(
+          issueId,
+          resilience.call(ResilientCaller.ENDPOINT_WRITE,
+              () -> post(resource, form, unmodifiedSince)),
+          "Failed apply command " + command + " to issue " + issueId);
     } else {
       throw new RuntimeException("Null issue id or command while apply command.");
     }
   }
 
+  private static ClientResponse post(WebResource resource, Form form, Date unmodifiedSince) {
+    WebResource.Builder request = resource.type(MediaType.APPLICATION_FORM_URLENCODED);
+    if (unmodifiedSince != null) {
+      // header has seconds only, rounded down the issue would look changed after its own update
+      request =
+          request.header(IF_UNMODIFIED_SINCE,
+              new Date((unmodifiedSince.getTime() + 999) / 1000 * 1000));
+    }
+    return request.post(ClientResponse.class, form);
+  }
+
+  private static ClientResponse checkConflict(String issueId, ClientResponse response,
+      String message) {
+    if (response.getStatus() == PRECONDITION_FAILED) {
+      response.close();
+      throw new IssueConflictException(issueId);
+    }
+    return checkClientResponse(response, 200, message);
+  }
+
+  private static final Predicate<Integer> NOT_READY = number -> number == -1;
+
   /**
    * @param filterQuery
    * @return number of relevant issues or all issues, if filter string is null return -1 if reach
    *         max number of attempts
    */
-  public int getNumberOfIssues(String filterQuery) {
+  public int getNumberOfIssues(final String filterQuery) {
+    return coalescer.execute("count:" + filterQuery, () -> resilience.call(
+        ResilientCaller.ENDPOINT_COUNT, () -> requestNumberOfIssues(filterQuery), NOT_READY));
+  }
+
+  /**
+   * Like {@link #getNumberOfIssues(String)}, but no thread waits while the server counts issues.
+   */
+  public CompletableFuture<Integer> getNumberOfIssuesAsync(final String filterQuery,
+      Executor executor) {
+    return resilience.callAsync(ResilientCaller.ENDPOINT_COUNT,
+        () -> requestNumberOfIssues(filterQuery), NOT_READY, executor);
+  }
+
+  private int requestNumberOfIssues(String filterQuery) {
     WebResource resource = service.path("/issue/count");
     if (filterQuery != null) {
       resource = resource.queryParam("filter", filterQuery);
@@ -241,18 +485,7 @@ public class YouTrackClient {
       resource = resource.queryParam("filter", "");
     }
 
-    int number;
-    int attemptCount = 0;
-    while ((number =
-        resource.accept("application/xml").get(XmlNumberOfIssuesParser.class).getNumber()) == -1
-        && attemptCount++ < 10) {
-      try {
-        Thread.sleep(1000);
-      } catch (InterruptedException e) {
-        break;
-      }
-    }
-    return number;
+    return resource.accept("application/xml").get(XmlNumberOfIssuesParser.class).getNumber();
   }
 
   @XmlRootElement(name = "int")
@@ -272,29 +505,76 @@ public class YouTrackClient {
   }
 
   public List<YouTrackIssue> getIssuesByFilter(String filterQuery, int max) {
-    WebResource resource;
-    if (filterQuery != null) {
-      resource = service.path("/issue").queryParam("filter", filterQuery);
-    } else {
-      resource = service.path("/issue").queryParam("filter", "");
-    }
+    return getIssuesByFilter(filterQuery, 0, max);
+  }
 
+  public List<YouTrackIssue> getIssuesByFilter(String filterQuery, int after, int max) {
+    final WebResource request = issuesByFilter(filterQuery, after, max);
+    return resilience.call(ResilientCaller.ENDPOINT_READ,
+        () -> request.accept(getMediaType()).get(IssueCompactsList.class).getIssues());
+  }
+
+  /**
+   * Streaming variant of {@link #getIssuesByFilter(String, int, int)}: issues are passed to
+   * consumer as soon as each &lt;issue&gt; element is parsed, the list is never materialized.
+   * 
+   * @return number of issues read
+   */
+  public int forEachIssue(final String filterQuery, final int after, final int max,
+      Consumer<YouTrackIssue> consumer) {
+    return readIssues(issuesByFilter(filterQuery, after, max),
+        () -> getIssuesByFilter(filterQuery, after, max), consumer);
+  }
+
+  private WebResource issuesByFilter(String filterQuery, int after, int max) {
+    WebResource resource =
+        service.path("/issue").queryParam("filter", filterQuery != null ? filterQuery : "");
+    if (after > 0) {
+      resource = resource.queryParam("after", Integer.toString(after));
+    }
     if (max != -1) {
       resource = resource.queryParam("max", Integer.toString(max));
     }
+    return resource;
+  }
 
-    return resource.accept("application/xml").get(IssueCompactsList.class).getIssues();
+  /**
+   * Iterate over issues matching filter, loading pageSize issues per request.
+   * 
+   * @param limit max number of issues, -1 for all
+   * @param prefetchExecutor executor reading pages ahead of the caller, may be null
+   */
+  public PagedIssueIterator iterateIssuesByFilter(final String filterQuery, int pageSize,
+      int limit, Executor prefetchExecutor) {
+    return new PagedIssueIterator(new PagedIssueIterator.PageSource() {
+      @Override
+      public int readPage(int after, int max, Consumer<YouTrackIssue> consumer) {
+        return forEachIssue(filterQuery, after, max, consumer);
+      }
+    }, pageSize, limit, prefetchExecutor);
+  }
+
+  public PagedIssueIterator iterateIssuesInProject(final String projectname, final String filter,
+      final long updatedAfter, int pageSize, int limit, Executor prefetchExecutor) {
+    return new PagedIssueIterator(new PagedIssueIterator.PageSource() {
+      @Override
+      public int readPage(int after, int max, Consumer<YouTrackIssue> consumer) {
+        return forEachIssueInProject(projectname, filter, after, max, updatedAfter, consumer);
+      }
+    }, pageSize, limit, prefetchExecutor);
   }
 
   public List<YouTrackIssue> getIssuesByFilter(String filterQuery) {
     return getIssuesByFilter(filterQuery, -1);
   }
 
-  public LinkedList<YouTrackCustomField> getProjectCustomFields(String projectname) {
+  public LinkedList<YouTrackCustomField> getProjectCustomFields(final String projectname) {
     if (projectname != null) {
       try {
-        return service.path("/admin/project/").path(projectname).path("/customfield")
-            .accept("application/xml").get(YouTrackCustomFieldsList.class).getCustomFields();
+        // list is copied, its fields only carry names and are not changed by callers
+        return new LinkedList<YouTrackCustomField>(read("customFields:" + projectname,
+            () -> service.path("/admin/project/").path(projectname).path("/customfield")
+                .accept(getMediaType()).get(YouTrackCustomFieldsList.class).getCustomFields()));
       } catch (Exception e) {
         throw new RuntimeException("Exception while get project custom fields:\n" + e.getMessage());
       }
@@ -303,11 +583,13 @@ public class YouTrackClient {
     }
   }
 
-  public YouTrackCustomField getProjectCustomField(String projectname, String fieldname) {
+  public YouTrackCustomField getProjectCustomField(final String projectname,
+      final String fieldname) {
     if (projectname != null && fieldname != null) {
       try {
-        return service.path("/admin/project/").path(projectname).path("/customfield/")
-            .path(fieldname).accept("application/xml").get(YouTrackCustomField.class);
+        return readOwn(() -> service
+            .path("/admin/project/").path(projectname).path("/customfield/").path(fieldname)
+            .accept(getMediaType()).get(YouTrackCustomField.class));
       } catch (Exception e) {
         throw new RuntimeException("Exception while get project custom field:\n" + e.getMessage());
       }
@@ -326,24 +608,26 @@ public class YouTrackClient {
     return cfNames;
   }
 
+  private <T> T getBundle(final String path, final String bundlename, final Class<T> type) {
+    return read(path + bundlename, () -> service.path(path).path(bundlename)
+        .accept(getMediaType()).get(type));
+  }
+
   public EnumerationBundleValues getEnumerationBundleValues(String bundlename) {
-    return service.path("/admin/customfield/bundle/").path(bundlename).accept("application/xml")
-        .get(EnumerationBundleValues.class);
+    return getBundle("/admin/customfield/bundle/", bundlename, EnumerationBundleValues.class);
   }
 
   public OwnedFieldBundleValues getOwnedFieldBundleValues(String bundlename) {
-    return service.path("/admin/customfield/ownedFieldBundle/").path(bundlename)
-        .accept("application/xml").get(OwnedFieldBundleValues.class);
+    return getBundle("/admin/customfield/ownedFieldBundle/", bundlename,
+        OwnedFieldBundleValues.class);
   }
 
   public BuildBundleValues getBuildBundleValues(String bundlename) {
-    return service.path("/admin/customfield/buildBundle/").path(bundlename)
-        .accept("application/xml").get(BuildBundleValues.class);
+    return getBundle("/admin/customfield/buildBundle/", bundlename, BuildBundleValues.class);
   }
 
   public StateBundleValues getStateBundleValues(String bundlename) {
-    return service.path("/admin/customfield/stateBundle/").path(bundlename)
-        .accept("application/xml").get(StateBundleValues.class);
+    return getBundle("/admin/customfield/stateBundle/", bundlename, StateBundleValues.class);
   }
 
   public boolean isStateResolved(String bundlename, String state) {
@@ -352,53 +636,31 @@ public class YouTrackClient {
   }
 
   public VersionBundleValues getVersionBundleValues(String bundlename) {
-    return service.path("/admin/customfield/versionBundle/").path(bundlename)
-        .accept("application/xml").get(VersionBundleValues.class);
+    return getBundle("/admin/customfield/versionBundle/", bundlename, VersionBundleValues.class);
   }
 
   public UserBundleValues getUserBundleValues(String bundlename) {
-    return service.path("/admin/customfield/userBundle/").path(bundlename)
-        .accept("application/xml").get(UserBundleValues.class);
+    return getBundle("/admin/customfield/userBundle/", bundlename, UserBundleValues.class);
   }
 
   /**
    * Add all unique users from userGroups and add them to bundle values
+   * 
+   * @return user bundle with full info of all users including users of its groups
    */
   public UserBundleValues getAllUserBundleValues(String bundlename) {
-    UserBundleValues userBundleValues = getUserBundleValues(bundlename);
-    if (userBundleValues.getUserGroupValues() != null) {
-      for (UserGroupValue groupValue : userBundleValues.getUserGroupValues()) {
-        try {
-          int start = 0;
-          LinkedList<UserValue> users =
-              getUsersListInGroup(groupValue.getValue(), start).getUsers();
-          while (users != null) {
-            userBundleValues.addUsersFromGroup(users);
-            start += 10;
-            users = getUsersListInGroup(groupValue.getValue(), start).getUsers();
-          }
-        } catch (UniformInterfaceException e) {
-          // You do not have permissions to read user,
-          // supress for possibility create issue.
-        }
-      }
-    }
-    if (userBundleValues.getAllUsers() != null) {
-      for (UserValue user : userBundleValues.getAllUsers()) {
-        userBundleValues.addFullUser(getUser(user.getValue()));
-      }
-    }
-    return userBundleValues;
+    return userBundleResolver.resolve(bundlename);
   }
 
-  public UserValue getUser(String login) {
-    return service.path("/admin/user/").path(login).accept("application/xml").get(UserValue.class);
+  public UserValue getUser(final String login) {
+    return read("user:" + login, () -> service.path("/admin/user/").path(login)
+        .accept("application/xml").get(UserValue.class));
   }
 
-  public GroupUsersList getUsersListInGroup(String groupname, int start) {
-    return service.path("/admin/user").queryParam("group", groupname)
-        .queryParam("start", String.valueOf(start)).accept("application/xml")
-        .get(GroupUsersList.class);
+  public GroupUsersList getUsersListInGroup(final String groupname, final int start) {
+    return read("group:" + groupname + ":" + start, () -> service.path("/admin/user")
+        .queryParam("group", groupname).queryParam("start", String.valueOf(start))
+        .accept("application/xml").get(GroupUsersList.class));
   }
 
   public void addComment(final String issueId, final String comment) {
@@ -545,12 +807,13 @@ public class YouTrackClient {
   }
 
   public String[] getUserTags() {
-    return service.path("/user/tag").accept("application/xml").get(UserTagList.class).getOptions();
+    return read("userTags", () -> service.path("/user/tag").accept("application/xml")
+        .get(UserTagList.class).getOptions());
   }
 
   public String[] getAllLinkTypeCommands() {
-    return service.path("/admin/issueLinkType").accept("application/xml")
-        .get(IssueLinkTypesList.class).getAllLinkTypeCommands();
+    return read("linkTypes", () -> service.path("/admin/issueLinkType")
+        .accept("application/xml").get(IssueLinkTypesList.class).getAllLinkTypeCommands());
   }
 
   /**
@@ -562,6 +825,11 @@ public class YouTrackClient {
    */
   public void updateIssueSummaryAndDescription(final String issueId, final String newSummary,
       final String newDescription) {
+    updateIssueSummaryAndDescription(issueId, newSummary, newDescription, null);
+  }
+
+  private void updateIssueSummaryAndDescription(final String issueId, final String newSummary,
+      final String newDescription, Date unmodifiedSince) {
     Form form = new Form();
     WebResource resource = service.path("/issue/").path(issueId);
     if (newSummary != null && newSummary.length() > 0) {
@@ -573,180 +841,98 @@ public class YouTrackClient {
       throw new RuntimeException("Failed to update issue: summary cant be empty");
     }
 
-    checkClientResponse(
-        resource.type(MediaType.APPLICATION_FORM_URLENCODED).post(ClientResponse.class, form), 200,
+    checkConflict(issueId, post(resource, form, unmodifiedSince),
         "Failed to update issue description and summary ");
   }
 
   public boolean needUpdateSummary(YouTrackIssue oldIssue, YouTrackIssue newIssue) {
-    return newIssue.getSummary() != null && newIssue.getSummary().length() > 0
-        && !oldIssue.getSummary().equals(newIssue.getSummary());
+    return IssueCommandCompiler.needUpdateSummary(oldIssue, newIssue);
   }
 
   public boolean needUpdateDescription(YouTrackIssue oldIssue, YouTrackIssue newIssue) {
-    return newIssue.getDescription() != null
-        && (oldIssue.getDescription() == null || !oldIssue.getDescription().equals(
-            newIssue.getDescription()));
+    return IssueCommandCompiler.needUpdateDescription(oldIssue, newIssue);
   }
 
   public boolean needUpdateCustomField(YouTrackIssue oldIssue, YouTrackIssue newIssue,
       String customFieldName) {
-    YouTrackCustomField customFieldInfo = newIssue.getCustomFieldInfo(customFieldName);
-    if (customFieldInfo.isSingle()) {
-      return newIssue.getSingleCustomFieldValue(customFieldName) != null
-          && (oldIssue.getSingleCustomFieldValue(customFieldName) == null || !oldIssue
-              .getSingleCustomFieldValue(customFieldName).equals(
-                  newIssue.getSingleCustomFieldValue(customFieldName)));
-    } else {
-
-      boolean equalSize;
-
-      LinkedList<String> newValues = new LinkedList<String>();
-      if (!newIssue.getCustomFieldsValues().containsKey(customFieldName)
-          || newIssue.getCustomFieldValue(customFieldName) == null) {
-        return false;
-      } else {
-        newValues = newIssue.getCustomFieldValue(customFieldName);
-      }
-
-      LinkedList<String> oldValues = new LinkedList<String>();
-      if (!oldIssue.getCustomFieldsValues().containsKey(customFieldName)
-          || oldIssue.getCustomFieldValue(customFieldName) == null) {
-        return true;
-      } else {
-        oldValues = oldIssue.getCustomFieldValue(customFieldName);
-      }
-
-      equalSize = newValues.size() == oldValues.size();
-      oldValues.removeAll(newValues);
-
-      return !equalSize || oldValues.size() > 0;
-    }
+    return IssueCommandCompiler.needUpdateCustomField(oldIssue, newIssue, customFieldName);
   }
 
   /**
    * If issue not update fully, make incomplete update
    */
   public void updateIssue(String oldIssueId, YouTrackIssue newIssue) {
-
     if (oldIssueId != null) {
+      updateIssue(oldIssueId, this.getIssue(oldIssueId), newIssue);
+    } else {
+      throw new RuntimeException("Null target issue id while update issue.");
+    }
+  }
 
-      YouTrackIssue oldIssue = this.getIssue(oldIssueId);
-
-      if (needUpdateSummary(oldIssue, newIssue) || needUpdateDescription(oldIssue, newIssue)) {
-        updateIssueSummaryAndDescription(oldIssueId, newIssue.getSummary(),
-            newIssue.getDescription());
-      }
-
-      StringBuilder addCFCommand = new StringBuilder();
-
-      for (String customFieldName : newIssue.getCustomFieldsValues().keySet()) {
-
-        if (!newIssue.isCustomFieldsDataConsistent(customFieldName)) {
-          return;
-        }
-        YouTrackCustomField customFieldInfo = newIssue.getCustomFieldInfo(customFieldName);
-
-        if (YouTrackCustomFieldType.getTypeByName(customFieldInfo.getType()).equals(
-            YouTrackCustomFieldType.USER_MULTI)) {
-          LinkedList<String> values = oldIssue.getCustomFieldValue(customFieldName);
-          LinkedList<String> newValues = new LinkedList<String>();
-          if (values != null) {
-            for (String value : values) {
-              newValues.add(YouTrackIssue.getLoginFromMultiuserValue(value));
-            }
-            oldIssue.addCustomFieldValue(customFieldName, newValues);
-          }
-        }
-
-        if (needUpdateCustomField(oldIssue, newIssue, customFieldName)) {
-          if (customFieldInfo.isSingle()) {
-            if (customFieldInfo.getType().equals(YouTrackCustomFieldType.STRING.getName())) {
-              this.applyCommand(oldIssueId,
-                  customFieldName + ": " + newIssue.getSingleCustomFieldValue(customFieldName));
-            } else {
-
-              if (YouTrackCustomFieldType.getTypeByName(customFieldInfo.getType()).equals(
-                  YouTrackCustomFieldType.USER_SINGLE)) {
-                addCFCommand.append(customFieldName + ": "
-                    + newIssue.getSingleCustomFieldValue(customFieldName) + " ");
-              } else {
-                addCFCommand.append(customFieldName + ": "
-                    + newIssue.getSingleCustomFieldValue(customFieldName) + " ");
-              }
-            }
-          } else {
-
-            LinkedList<String> selectedValues = new LinkedList<String>();
-            if (newIssue.getCustomFieldValue(customFieldName) != null) {
-              selectedValues = newIssue.getCustomFieldValue(customFieldName);
-            }
-
-            LinkedList<String> oldValues = new LinkedList<String>();
-            if (oldIssue.getCustomFieldValue(customFieldName) != null) {
-              oldValues = oldIssue.getCustomFieldValue(customFieldName);
-            }
-
-            LinkedList<String> newValues = new LinkedList<String>(selectedValues);
-            newValues.removeAll(oldValues);
-            LinkedList<String> removeValues = new LinkedList<String>(oldValues);
-            removeValues.removeAll(selectedValues);
-
-            if (removeValues.size() > 0) {
-              StringBuilder removeCommand = new StringBuilder();
-              removeCommand.append("Remove " + customFieldName + " ");
-              for (String value : removeValues) {
-                removeCommand.append(value + " ");
-              }
-              applyCommand(oldIssueId, removeCommand.toString());
-            }
-
-            if (newValues.size() > 0) {
-              addCFCommand.append("add " + customFieldName + " ");
-              for (String value : newValues) {
-                addCFCommand.append(value + " ");
-              }
-            }
-          }
-        }
-      }
-      if (addCFCommand.toString() != null) {
-        this.applyCommand(oldIssueId, addCFCommand.toString());
-      }
-
-      LinkedList<String> selectedTags = new LinkedList<String>();
-      if (newIssue.getTags() != null && newIssue.getTags().size() > 0) {
-        selectedTags = newIssue.getStringTags();
-      }
-      LinkedList<String> oldTags = new LinkedList<String>();
-      if (oldIssue.getTags() != null) {
-        oldTags = oldIssue.getStringTags();
-      }
-      LinkedList<String> newTags = new LinkedList<String>(selectedTags);
-      newTags.remove(oldTags);
-      LinkedList<String> removeTags = new LinkedList<String>(oldTags);
-      removeTags.removeAll(selectedTags);
-
-      StringBuilder modifyTagsCommand = new StringBuilder();
-      for (String newTag : newTags) {
-        this.applyCommand(oldIssueId, " add tag " + newTag.replace("\n", ""));
-      }
-
-      for (String tagToRemove : removeTags) {
-        modifyTagsCommand.append(" remove tag " + tagToRemove.replace("\n", ""));
-      }
+  /**
+   * Bring issue from known old state to new one with calls compiled by
+   * {@link IssueCommandCompiler}.
+   * 
+   * @return applied update
+   */
+  public IssueUpdate updateIssue(String issueId, YouTrackIssue oldIssue, YouTrackIssue newIssue) {
+    return updateIssue(issueId, oldIssue, newIssue, 0);
+  }
 
-      if (modifyTagsCommand.toString() != null) {
-        this.applyCommand(oldIssueId, modifyTagsCommand.toString());
+  /**
+   * Same as {@link #updateIssue(String, YouTrackIssue, YouTrackIssue)}, but the update is rejected
+   * if somebody changed the issue after the old state was loaded. Before writing, the issue is
+   * read again and its updated time compared with the loaded one; this is exact to the
+   * millisecond and doesn't depend on the server. The first request is also sent with
+   * If-Unmodified-Since header, which covers changes made between the check and the write on
+   * servers honoring it, but only from the next second on. Later requests of the update go without it, the first one
+   * already changed the issue.
+   * 
+   * @param updated time of last change of old issue, 0 to skip the check
+   * @throws IssueConflictException if issue was changed on server
+   */
+  public IssueUpdate updateIssue(String issueId, YouTrackIssue oldIssue, YouTrackIssue newIssue,
+      long updated) {
+    if (issueId == null) {
+      throw new RuntimeException("Null target issue id while update issue.");
+    }
+    IssueUpdate update = IssueCommandCompiler.compile(oldIssue, newIssue);
+    if (update.isEmpty()) {
+      return update;
+    }
+    Date unmodifiedSince = null;
+    if (updated > 0) {
+      if (getUpdated(issueId) > updated) {
+        throw new IssueConflictException(issueId);
       }
+      unmodifiedSince = new Date(updated);
+    }
+    if (update.isSummaryOrDescriptionChanged()) {
+      updateIssueSummaryAndDescription(issueId, update.getSummary(), update.getDescription(),
+          unmodifiedSince);
+      unmodifiedSince = null;
+    }
+    for (String command : update.getCommands()) {
+      applyCommand(issueId, command, unmodifiedSince);
+      unmodifiedSince = null;
+    }
+    return update;
+  }
 
-    } else {
-      throw new RuntimeException("Null target issue id while update issue.");
+  /**
+   * @return time of last change of issue on server, 0 if unknown
+   */
+  private long getUpdated(String issueId) {
+    String updated = getIssue(issueId).getSingleField("updated");
+    try {
+      return updated != null ? Long.parseLong(updated) : 0;
+    } catch (NumberFormatException e) {
+      return 0;
     }
   }
 
   public YouTrackTimeSettings getTimeTrackingSettings() {
-    return service.path("/admin/timetracking").accept("application/xml")
-        .get(YouTrackTimeSettings.class);
+    return read("timeTracking", () -> service.path("/admin/timetracking")
+        .accept("application/xml").get(YouTrackTimeSettings.class));
   }
 }
@@ -1,20 +1,29 @@
 package com.jetbrains.youtrack.javarest.client;
 
 
-import java.io.PrintStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
 import javax.ws.rs.core.NewCookie;
 
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.apache.commons.logging.LogFactory;
+
+import com.jetbrains.youtrack.javarest.utils.NetworkExecutors;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientRequest;
 import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
 import com.sun.jersey.api.client.config.DefaultClientConfig;
 import com.sun.jersey.api.client.filter.ClientFilter;
-import com.sun.jersey.api.client.filter.LoggingFilter;
 import com.sun.jersey.client.apache.ApacheHttpClient;
+import com.sun.jersey.client.apache.ApacheHttpClientHandler;
 import com.sun.jersey.client.apache.config.ApacheHttpClientConfig;
 
 public class YouTrackClientFactory {
@@ -23,41 +32,172 @@ public class YouTrackClientFactory {
 
   private DefaultClientConfig defaultConfig;
 
+  private YouTrackClientSettings settings;
+
+  private MultiThreadedHttpConnectionManager connectionManager;
+
+  private IdleConnectionTimeoutThread idleConnectionEvictor;
+
+  private ConditionalGetFilter conditionalGetFilter;
+
+  private CompressionFilter compressionFilter;
+
+  private ResilientCaller resilientCaller;
+
+  private final Executor executor;
+
+  private final ClientMetrics metrics = new ClientMetrics();
+
   private static final String URL_PREFIX_HTTPS = "https://";
 
   private static final String URL_PREFIX_HTTP = "http://";
 
   public YouTrackClientFactory(Client baseClient) {
     this.baseClient = baseClient;
+    this.settings = new YouTrackClientSettings();
+    this.executor = NetworkExecutors.getSharedExecutor();
+    this.resilientCaller = createResilientCaller(settings, executor);
   }
 
 
   public YouTrackClientFactory() {
+    this(new YouTrackClientSettings());
+  }
+
+  public YouTrackClientFactory(YouTrackClientSettings settings) {
+    this(settings, NetworkExecutors.getSharedExecutor());
+  }
+
+  /**
+   * @param executor executor for retries and concurrent requests of all clients of the factory
+   */
+  public YouTrackClientFactory(YouTrackClientSettings settings, Executor executor) {
+    this.settings = settings;
+    this.executor = executor;
+    this.resilientCaller = createResilientCaller(settings, executor);
     defaultConfig = new DefaultClientConfig();
     // dont use simple Client because cookies not handle properly
     // this.baseClient = Client.create(defaultConfig);
-    defaultConfig.getProperties().put(ApacheHttpClientConfig.PROPERTY_HANDLE_COOKIES, true);
-    this.baseClient = ApacheHttpClient.create(defaultConfig);
-    getClientFactory().addFilter(new SecureLoggingFilter(System.out));
+    // session cookies are kept by AuthenticationManager of each client
+    defaultConfig.getProperties().put(ApacheHttpClientConfig.PROPERTY_HANDLE_COOKIES, false);
+    defaultConfig.getProperties().put(ClientConfig.PROPERTY_CONNECT_TIMEOUT,
+        settings.getConnectTimeout());
+    defaultConfig.getProperties().put(ClientConfig.PROPERTY_READ_TIMEOUT,
+        settings.getReadTimeout());
+    defaultConfig.getSingletons().add(new JaxbBindings.ContextProvider());
+    defaultConfig.getSingletons().add(new JaxbBindings.JsonContextProvider());
+    defaultConfig.getSingletons().add(new JaxbBindings.XmlReader());
+    defaultConfig.getSingletons().add(new JaxbBindings.JsonReader());
+    if (settings.isPooledTransport()) {
+      this.baseClient = createPooledClient(defaultConfig, settings);
+    } else {
+      this.baseClient = ApacheHttpClient.create(defaultConfig);
+    }
+    // filter added last is called first: cache must see decoded entities
+    if (settings.isCompression()) {
+      compressionFilter = new CompressionFilter();
+      getClientFactory().addFilter(compressionFilter);
+    }
+    if (settings.isHttpCache()) {
+      conditionalGetFilter =
+          new ConditionalGetFilter(new HttpResponseCache(settings.getHttpCacheMaxEntries(),
+              settings.getHttpCacheDirectory()));
+      getClientFactory().addFilter(conditionalGetFilter);
+    }
+    // metrics see decoded responses, time of a served cache hit is counted as a call
+    getClientFactory().addFilter(new MetricsFilter(metrics));
+    // logging is outermost to see requests and decoded responses as the client does
+    if (settings.getWireLogMode() != WireLoggingFilter.Mode.OFF) {
+      getClientFactory().addFilter(new WireLoggingFilter(settings.getWireLogMode(),
+          settings.getWireLogBodyLimit(), settings.getWireLogSampleRate(),
+          WireLoggingFilter.RedactionPolicy.createDefault(),
+          LogFactory.getLog(WireLoggingFilter.class)));
+    }
     // handleCookies();
   }
 
-  private class SecureLoggingFilter extends LoggingFilter {
+  /**
+   * Default ApacheHttpClient uses connection manager limited to 2 connections per host, so
+   * concurrent jobs wait for each other. Pooled client shares keep-alive connections between all
+   * YouTrackClient instances of this factory and closes connections idle longer than TTL.
+   */
+  private ApacheHttpClient createPooledClient(ClientConfig config, YouTrackClientSettings settings) {
+    connectionManager = new MultiThreadedHttpConnectionManager();
+    HttpConnectionManagerParams params = connectionManager.getParams();
+    params.setDefaultMaxConnectionsPerHost(settings.getMaxConnectionsPerHost());
+    params.setMaxTotalConnections(settings.getMaxTotalConnections());
+    params.setConnectionTimeout(settings.getConnectTimeout());
+    params.setSoTimeout(settings.getReadTimeout());
+    params.setStaleCheckingEnabled(true);
 
-    public SecureLoggingFilter(PrintStream out) {
-      super(out);
+    if (settings.getKeepAliveTtl() > 0 && settings.getIdleEvictionInterval() > 0) {
+      idleConnectionEvictor = new IdleConnectionTimeoutThread();
+      idleConnectionEvictor.setName("YouTrack idle connection evictor");
+      idleConnectionEvictor.setConnectionTimeout(settings.getKeepAliveTtl());
+      idleConnectionEvictor.setTimeoutInterval(settings.getIdleEvictionInterval());
+      idleConnectionEvictor.addConnectionManager(connectionManager);
+      idleConnectionEvictor.start();
     }
 
-    @Override
-    public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
-      if (request.getURI().getPath().contains("/rest/user/login")) {
-        return getNext().handle(request);
-      }
-      return super.handle(request);
+    // client takes its config, with providers and properties, from the handler
+    return new ApacheHttpClient(new ApacheHttpClientHandler(new HttpClient(connectionManager),
+        config));
+  }
+
+  /**
+   * All clients of the factory talk to one server, so they share circuit breaker.
+   */
+  private static ResilientCaller createResilientCaller(YouTrackClientSettings settings,
+      Executor executor) {
+    return new ResilientCaller(new CircuitBreaker(settings.getBreakerFailureThreshold(),
+        settings.getBreakerOpenDuration()), new RetryPolicy(settings.getRetryMaxAttempts(),
+        settings.getRetryInitialDelay(), settings.getRetryMaxDelay()), executor);
+  }
+
+  public ResilientCaller getResilientCaller() {
+    return resilientCaller;
+  }
+
+  /**
+   * Stop metrics dump and idle connections eviction, close all pooled connections. Clients
+   * created by this factory must not be used after shutdown.
+   */
+  public void shutdown() {
+    metrics.stopDump();
+    if (idleConnectionEvictor != null) {
+      idleConnectionEvictor.shutdown();
+      idleConnectionEvictor = null;
+    }
+    if (connectionManager != null) {
+      connectionManager.shutdown();
+      connectionManager = null;
     }
+  }
+
+  /**
+   * @return filter serving revalidated schema responses, null if http cache is disabled
+   */
+  public ConditionalGetFilter getConditionalGetFilter() {
+    return conditionalGetFilter;
+  }
+
+  /**
+   * @return calls of all clients of this factory by endpoint
+   */
+  public ClientMetrics getMetrics() {
+    return metrics;
+  }
 
+  /**
+   * @return filter with bytes on wire counters, null if compression is disabled
+   */
+  public CompressionFilter getCompressionFilter() {
+    return compressionFilter;
   }
 
+  public YouTrackClientSettings getSettings() {
+    return settings;
+  }
 
   public void handleCookies() {
 
@@ -98,19 +238,31 @@ public class YouTrackClientFactory {
     }
   }
 
+  private YouTrackClient createClient(WebResource resource) {
+    YouTrackClient client = new YouTrackClient(resource, resilientCaller, executor);
+    client.setWireFormat(settings.getWireFormat());
+    client.getUserBundleResolver().setParallelism(settings.getUserLookupParallelism());
+    client.getProjectSchemaLoader().setParallelism(settings.getSchemaLoadParallelism());
+    client.getProjectSchemaLoader().setFieldTimeout(settings.getSchemaFieldTimeout());
+    client.getBundleCache().setMaxBytes(settings.getBundleCacheMaxBytes());
+    client.getUserDirectory().setTtl(settings.getUserDirectoryTtl());
+    client.getUserDirectory().setMaxEntries(settings.getUserDirectoryMaxEntries());
+    return client;
+  }
+
   public YouTrackClient getClient(String baseUrlString) {
     URL baseUrl;
     if (baseUrlString.startsWith(URL_PREFIX_HTTPS) || baseUrlString.startsWith(URL_PREFIX_HTTP)) {
       try {
         baseUrl = new URL(baseUrlString);
-        return new YouTrackClient(getClientFactory().resource(baseUrl.toURI()).path("/rest"));
+        return createClient(getClientFactory().resource(baseUrl.toURI()).path("/rest"));
       } catch (Exception e) {
         throw new RuntimeException("Repository URL is not valid.", e);
       }
     } else {
       try {
         baseUrl = new URL(URL_PREFIX_HTTPS + baseUrlString);
-        return new YouTrackClient(getClientFactory().resource(baseUrl.toURI()).path("/rest"));
+        return createClient(getClientFactory().resource(baseUrl.toURI()).path("/rest"));
       } catch (Exception e) {
         throw new RuntimeException("Repository URL is not valid.", e);
       }
@@ -0,0 +1,351 @@
+package com.jetbrains.youtrack.javarest.client;
+
+import java.io.File;
+
+/**
+ * Transport settings used by {@link YouTrackClientFactory} to build the underlying HTTP client.
+ * All durations are in milliseconds, zero means no timeout.
+ */
+public class YouTrackClientSettings {
+
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 20;
+
+  public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 50;
+
+  public static final int DEFAULT_KEEP_ALIVE_TTL = 60 * 1000;
+
+  public static final int DEFAULT_IDLE_EVICTION_INTERVAL = 30 * 1000;
+
+  public static final int DEFAULT_CONNECT_TIMEOUT = 30 * 1000;
+
+  public static final int DEFAULT_READ_TIMEOUT = 60 * 1000;
+
+  private boolean compression = true;
+
+  private int retryMaxAttempts = RetryPolicy.DEFAULT_MAX_ATTEMPTS;
+
+  private int retryInitialDelay = RetryPolicy.DEFAULT_INITIAL_DELAY;
+
+  private int retryMaxDelay = RetryPolicy.DEFAULT_MAX_DELAY;
+
+  private int breakerFailureThreshold = CircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+
+  private int breakerOpenDuration = CircuitBreaker.DEFAULT_OPEN_DURATION;
+
+  private int issuePageSize = PagedIssueIterator.DEFAULT_PAGE_SIZE;
+
+  private int userLookupParallelism = UserBundleResolver.DEFAULT_PARALLELISM;
+
+  private int schemaLoadParallelism = ProjectSchemaLoader.DEFAULT_PARALLELISM;
+
+  private long schemaFieldTimeout = ProjectSchemaLoader.DEFAULT_FIELD_TIMEOUT;
+
+  private long bundleCacheMaxBytes = BundleCache.DEFAULT_MAX_BYTES;
+
+  private long userDirectoryTtl = UserDirectory.DEFAULT_TTL;
+
+  private int userDirectoryMaxEntries = UserDirectory.DEFAULT_MAX_ENTRIES;
+
+  private long metricsDumpInterval = ClientMetrics.DEFAULT_DUMP_INTERVAL;
+
+  private YouTrackClient.WireFormat wireFormat = YouTrackClient.WireFormat.XML;
+
+  private WireLoggingFilter.Mode wireLogMode = WireLoggingFilter.Mode.OFF;
+
+  private int wireLogBodyLimit = WireLoggingFilter.DEFAULT_BODY_LIMIT;
+
+  private int wireLogSampleRate = WireLoggingFilter.DEFAULT_SAMPLE_RATE;
+
+  private boolean httpCache = true;
+
+  private int httpCacheMaxEntries = HttpResponseCache.DEFAULT_MAX_ENTRIES;
+
+  private File httpCacheDirectory;
+
+  private boolean pooledTransport = true;
+
+  private int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+  private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+
+  private int keepAliveTtl = DEFAULT_KEEP_ALIVE_TTL;
+
+  private int idleEvictionInterval = DEFAULT_IDLE_EVICTION_INTERVAL;
+
+  private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+  private int readTimeout = DEFAULT_READ_TIMEOUT;
+
+  public boolean isPooledTransport() {
+    return pooledTransport;
+  }
+
+  public void setPooledTransport(boolean pooledTransport) {
+    this.pooledTransport = pooledTransport;
+  }
+
+  public int getMaxConnectionsPerHost() {
+    return maxConnectionsPerHost;
+  }
+
+  public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+    this.maxConnectionsPerHost = Math.max(1, maxConnectionsPerHost);
+  }
+
+  public int getMaxTotalConnections() {
+    return maxTotalConnections;
+  }
+
+  public void setMaxTotalConnections(int maxTotalConnections) {
+    this.maxTotalConnections = Math.max(1, maxTotalConnections);
+  }
+
+  /**
+   * @return how long an idle keep-alive connection may stay in the pool before it is closed
+   */
+  public int getKeepAliveTtl() {
+    return keepAliveTtl;
+  }
+
+  public void setKeepAliveTtl(int keepAliveTtl) {
+    this.keepAliveTtl = Math.max(0, keepAliveTtl);
+  }
+
+  public int getIdleEvictionInterval() {
+    return idleEvictionInterval;
+  }
+
+  public void setIdleEvictionInterval(int idleEvictionInterval) {
+    this.idleEvictionInterval = Math.max(0, idleEvictionInterval);
+  }
+
+  public int getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(int connectTimeout) {
+    this.connectTimeout = Math.max(0, connectTimeout);
+  }
+
+  public int getReadTimeout() {
+    return readTimeout;
+  }
+
+  public void setReadTimeout(int readTimeout) {
+    this.readTimeout = Math.max(0, readTimeout);
+  }
+
+  public boolean isHttpCache() {
+    return httpCache;
+  }
+
+  public void setHttpCache(boolean httpCache) {
+    this.httpCache = httpCache;
+  }
+
+  public int getHttpCacheMaxEntries() {
+    return httpCacheMaxEntries;
+  }
+
+  public void setHttpCacheMaxEntries(int httpCacheMaxEntries) {
+    this.httpCacheMaxEntries = Math.max(1, httpCacheMaxEntries);
+  }
+
+  /**
+   * @return directory for responses evicted from memory, null if spill to disk is disabled
+   */
+  public File getHttpCacheDirectory() {
+    return httpCacheDirectory;
+  }
+
+  public void setHttpCacheDirectory(File httpCacheDirectory) {
+    this.httpCacheDirectory = httpCacheDirectory;
+  }
+
+  /**
+   * @return true if gzip/deflate encoded responses should be requested
+   */
+  public boolean isCompression() {
+    return compression;
+  }
+
+  public void setCompression(boolean compression) {
+    this.compression = compression;
+  }
+
+  /**
+   * @return interval of client metrics dump to log, zero disables the dump
+   */
+  public long getMetricsDumpInterval() {
+    return metricsDumpInterval;
+  }
+
+  public void setMetricsDumpInterval(long metricsDumpInterval) {
+    this.metricsDumpInterval = Math.max(0, metricsDumpInterval);
+  }
+
+  /**
+   * @return representation requested for issues, lists and schema
+   */
+  public YouTrackClient.WireFormat getWireFormat() {
+    return wireFormat;
+  }
+
+  public void setWireFormat(YouTrackClient.WireFormat wireFormat) {
+    this.wireFormat = wireFormat != null ? wireFormat : YouTrackClient.WireFormat.XML;
+  }
+
+  public WireLoggingFilter.Mode getWireLogMode() {
+    return wireLogMode;
+  }
+
+  public void setWireLogMode(WireLoggingFilter.Mode wireLogMode) {
+    this.wireLogMode = wireLogMode != null ? wireLogMode : WireLoggingFilter.Mode.OFF;
+  }
+
+  /**
+   * @return max logged bytes of one body in sampled mode, log chunk size in full mode
+   */
+  public int getWireLogBodyLimit() {
+    return wireLogBodyLimit;
+  }
+
+  public void setWireLogBodyLimit(int wireLogBodyLimit) {
+    this.wireLogBodyLimit = Math.max(1, wireLogBodyLimit);
+  }
+
+  /**
+   * @return in sampled mode bodies of every n-th request are logged
+   */
+  public int getWireLogSampleRate() {
+    return wireLogSampleRate;
+  }
+
+  public void setWireLogSampleRate(int wireLogSampleRate) {
+    this.wireLogSampleRate = Math.max(1, wireLogSampleRate);
+  }
+
+  /**
+   * @return number of issues requested at once when query results are iterated
+   */
+  public int getIssuePageSize() {
+    return issuePageSize;
+  }
+
+  public void setIssuePageSize(int issuePageSize) {
+    this.issuePageSize = Math.max(1, issuePageSize);
+  }
+
+  /**
+   * @return maximum of concurrent requests while user bundle is resolved
+   */
+  public int getUserLookupParallelism() {
+    return userLookupParallelism;
+  }
+
+  public void setUserLookupParallelism(int userLookupParallelism) {
+    this.userLookupParallelism = Math.max(1, userLookupParallelism);
+  }
+
+  /**
+   * @return maximum of custom fields loaded at once while project schema is updated
+   */
+  public int getSchemaLoadParallelism() {
+    return schemaLoadParallelism;
+  }
+
+  public void setSchemaLoadParallelism(int schemaLoadParallelism) {
+    this.schemaLoadParallelism = Math.max(1, schemaLoadParallelism);
+  }
+
+  /**
+   * @return time one custom field with its bundle may load
+   */
+  public long getSchemaFieldTimeout() {
+    return schemaFieldTimeout;
+  }
+
+  public void setSchemaFieldTimeout(long schemaFieldTimeout) {
+    this.schemaFieldTimeout = Math.max(0, schemaFieldTimeout);
+  }
+
+  /**
+   * @return estimated size of bundle values kept per repository
+   */
+  public long getBundleCacheMaxBytes() {
+    return bundleCacheMaxBytes;
+  }
+
+  public void setBundleCacheMaxBytes(long bundleCacheMaxBytes) {
+    this.bundleCacheMaxBytes = Math.max(0, bundleCacheMaxBytes);
+  }
+
+  /**
+   * @return time after which info of a user is requested again
+   */
+  public long getUserDirectoryTtl() {
+    return userDirectoryTtl;
+  }
+
+  public void setUserDirectoryTtl(long userDirectoryTtl) {
+    this.userDirectoryTtl = Math.max(0, userDirectoryTtl);
+  }
+
+  /**
+   * @return number of users kept per repository
+   */
+  public int getUserDirectoryMaxEntries() {
+    return userDirectoryMaxEntries;
+  }
+
+  public void setUserDirectoryMaxEntries(int userDirectoryMaxEntries) {
+    this.userDirectoryMaxEntries = Math.max(1, userDirectoryMaxEntries);
+  }
+
+  /**
+   * @return attempts of idempotent reads including the first one, 1 disables retries
+   */
+  public int getRetryMaxAttempts() {
+    return retryMaxAttempts;
+  }
+
+  public void setRetryMaxAttempts(int retryMaxAttempts) {
+    this.retryMaxAttempts = Math.max(1, retryMaxAttempts);
+  }
+
+  public int getRetryInitialDelay() {
+    return retryInitialDelay;
+  }
+
+  public void setRetryInitialDelay(int retryInitialDelay) {
+    this.retryInitialDelay = Math.max(0, retryInitialDelay);
+  }
+
+  public int getRetryMaxDelay() {
+    return retryMaxDelay;
+  }
+
+  public void setRetryMaxDelay(int retryMaxDelay) {
+    this.retryMaxDelay = Math.max(0, retryMaxDelay);
+  }
+
+  /**
+   * @return consecutive transient failures after which calls fail fast
+   */
+  public int getBreakerFailureThreshold() {
+    return breakerFailureThreshold;
+  }
+
+  public void setBreakerFailureThreshold(int breakerFailureThreshold) {
+    this.breakerFailureThreshold = Math.max(1, breakerFailureThreshold);
+  }
+
+  public int getBreakerOpenDuration() {
+    return breakerOpenDuration;
+  }
+
+  public void setBreakerOpenDuration(int breakerOpenDuration) {
+    this.breakerOpenDuration = Math.max(0, breakerOpenDuration);
+  }
+
+}
@@ -50,7 +50,14 @@ public class YouTrackCustomFieldBundle<T extends BundleValues> {
     return null;
   }
 
-  public T getBundleValuesFromClient(YouTrackClient client) {
+  /**
+   * @return values from bundle cache of the client, loaded if not cached yet
+   */
+  public T getBundleValuesFromClient(final YouTrackClient client) {
+    return client.getBundleCache().get(cfType, name, () -> loadBundleValues(client));
+  }
+
+  private T loadBundleValues(YouTrackClient client) {
     YouTrackCustomFieldType type = YouTrackCustomFieldType.getTypeByName(cfType);
     if (type != null) {
       try {
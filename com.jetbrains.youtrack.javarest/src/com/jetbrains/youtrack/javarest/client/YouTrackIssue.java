@@ -76,6 +76,14 @@ public class YouTrackIssue {
   }
 
   public void mapFields() {
+    mapFields(null);
+  }
+
+  /**
+   * @param directory known users, names of users in multi-user fields are taken from it, may be
+   *        null
+   */
+  public void mapFields(UserDirectory directory) {
     if (!mapped) {
       if (getFields().size() > 0) {
         for (IssueSchemaField field : getFields()) {
@@ -95,7 +103,7 @@ public class YouTrackIssue {
           } else if (field.getType().equals(IssueSchemaField.TYPE_MULTIUSER_FIELD)) {
             LinkedList<String> multiuserValues = new LinkedList<String>();
             for (IssueSchemaValue value : field.getValues()) {
-              multiuserValues.add(getMultiuserValue(value));
+              multiuserValues.add(getMultiuserValue(value, directory));
             }
             addCustomField(field.getName(), multiuserValues, null);
           }
@@ -105,8 +113,12 @@ public class YouTrackIssue {
     }
   }
 
-  private String getMultiuserValue(IssueSchemaValue multiuserValue) {
-    return multiuserValue.getFullName() + " (" + multiuserValue.getValue() + ")";
+  private String getMultiuserValue(IssueSchemaValue multiuserValue, UserDirectory directory) {
+    String fullName = multiuserValue.getFullName();
+    if (directory != null) {
+      fullName = directory.getFullName(multiuserValue.getValue(), fullName);
+    }
+    return UserDirectory.format(multiuserValue.getValue(), fullName);
   }
 
   public static String getLoginFromMultiuserValue(String value) {
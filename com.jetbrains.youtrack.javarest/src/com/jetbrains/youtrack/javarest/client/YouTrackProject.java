@@ -11,8 +11,6 @@ import java.util.HashMap;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlRootElement;
 
-import com.jetbrains.youtrack.javarest.client.YouTrackCustomField.YouTrackCustomFieldType;
-
 @XmlRootElement(name = "project")
 public class YouTrackProject {
 
@@ -38,7 +36,8 @@ public class YouTrackProject {
     this.projectShortName = projectShortName;
   }
 
-  private HashMap<String, YouTrackCustomField> customFieldsMap =
+  /** replaced as a whole when schema is loaded, readers never see a partial one */
+  private volatile HashMap<String, YouTrackCustomField> customFieldsMap =
       new HashMap<String, YouTrackCustomField>();
 
   private Date customFieldsUpdatedDate;
@@ -82,27 +81,17 @@ public class YouTrackProject {
     this.customFieldsUpdatedDate = customFieldsUpdatedDate;
   }
 
+  /**
+   * Load fields of the project concurrently and swap in the complete schema at once. Fields which
+   * can't be loaded keep their previous definitions.
+   */
   public synchronized void updateCustomFields(final YouTrackClient client) {
-
     if (client != null) {
-
-      setCustomFieldsMap(new HashMap<String, YouTrackCustomField>());
       if (projectShortName != null && !projectShortName.equals("")) {
-        for (YouTrackCustomField field : client.getProjectCustomFields(projectShortName)) {
-          YouTrackCustomField fullField =
-              client.getProjectCustomField(projectShortName, field.getName());
-
-          if (YouTrackCustomFieldType.getTypeByName(fullField.getType()) != null && !YouTrackCustomFieldType.getTypeByName(fullField.getType()).isSimple()) {
-            fullField.findBundle();
-            fullField.getBundle().setBundleValues(
-                fullField.getBundle().getBundleValuesFromClient(client));
-          }
-          addCustomField(fullField);
-        }
+        setCustomFieldsMap(client.getProjectSchemaLoader().load(projectShortName, customFieldsMap));
       } else {
-        updateCustomFields(client);
+        setCustomFieldsMap(new HashMap<String, YouTrackCustomField>());
       }
-
       setCustomFieldsUpdated(true);
       setCustomFieldsUpdatedDate(new Date());
     }
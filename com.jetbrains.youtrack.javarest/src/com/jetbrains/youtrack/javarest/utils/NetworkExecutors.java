@@ -0,0 +1,123 @@
+package com.jetbrains.youtrack.javarest.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for blocking REST calls. On Java 21+ every task gets its own virtual thread, so
+ * hundreds of requests may wait for the server without holding platform threads. Older runtimes
+ * get daemon platform threads, pooled up to a limit; beyond it a task gets its own thread. Tasks
+ * are never queued behind running ones or rejected while the executor runs, so a task may wait for
+ * other tasks of the same executor, also in nested fan-out.
+ */
+public final class NetworkExecutors {
+
+  /**
+   * System property to disable virtual threads even if the runtime supports them.
+   */
+  public static final String VIRTUAL_THREADS_PROPERTY = "com.jetbrains.youtrack.virtualThreads";
+
+  public static final int DEFAULT_PLATFORM_POOL_SIZE = 16;
+
+  /**
+   * Upper limit of pooled platform threads. A task submitted beyond it runs on an extra thread
+   * which ends with the task, it is neither queued nor rejected.
+   */
+  public static final int MAX_PLATFORM_THREADS = 256;
+
+  private static final long PLATFORM_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+  private static ExecutorService sharedExecutor;
+
+  private NetworkExecutors() {}
+
+  /**
+   * @return executor of clients created without one, e.g. outside of the connector
+   */
+  public static synchronized ExecutorService getSharedExecutor() {
+    if (sharedExecutor == null) {
+      sharedExecutor = newNetworkExecutor("YouTrack network");
+    }
+    return sharedExecutor;
+  }
+
+  public static ExecutorService newNetworkExecutor(String name) {
+    return newNetworkExecutor(name, DEFAULT_PLATFORM_POOL_SIZE);
+  }
+
+  public static ExecutorService newNetworkExecutor(String name, int platformPoolSize) {
+    if (isVirtualThreadsEnabled()) {
+      ExecutorService executor = newVirtualThreadExecutor();
+      if (executor != null) {
+        return executor;
+      }
+    }
+    return newPlatformExecutor(name, platformPoolSize);
+  }
+
+  public static boolean isVirtualThreadsEnabled() {
+    return !"false".equalsIgnoreCase(System.getProperty(VIRTUAL_THREADS_PROPERTY))
+        && getVirtualThreadFactoryMethod() != null;
+  }
+
+  /**
+   * Bundle is compiled for Java 11, so Executors.newVirtualThreadPerTaskExecutor is looked up
+   * reflectively.
+   */
+  private static Method getVirtualThreadFactoryMethod() {
+    try {
+      return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) getVirtualThreadFactoryMethod().invoke(null);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * @param poolSize threads kept while idle, more are started when all of them are busy
+   */
+  public static ExecutorService newPlatformExecutor(final String name, int poolSize) {
+    int size = Math.max(1, Math.min(poolSize, MAX_PLATFORM_THREADS));
+    final ThreadFactory threads = new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(size, MAX_PLATFORM_THREADS, PLATFORM_THREAD_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), threads,
+            new RejectedExecutionHandler() {
+              @Override
+              public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                // all pooled threads are busy: caller may be one of them waiting for this task,
+                // so the task can neither run on the caller nor wait in a queue
+                if (executor.isShutdown()) {
+                  throw new RejectedExecutionException("Executor " + name + " is shut down");
+                }
+                threads.newThread(task).start();
+              }
+            });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+}
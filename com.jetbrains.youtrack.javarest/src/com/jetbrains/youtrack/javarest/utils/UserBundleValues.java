@@ -30,6 +30,20 @@ public class UserBundleValues extends BundleValues {
 
   private LinkedList<UserValue> fullUsers;
 
+  /**
+   * @return bundle with the same users and groups, users of groups and full users are not copied
+   */
+  public UserBundleValues copy() {
+    UserBundleValues copy = new UserBundleValues();
+    if (bundleUserValues != null) {
+      copy.bundleUserValues = new LinkedList<UserValue>(bundleUserValues);
+    }
+    if (bundleUserGroupValues != null) {
+      copy.bundleUserGroupValues = new LinkedList<UserGroupValue>(bundleUserGroupValues);
+    }
+    return copy;
+  }
+
   private LinkedList<UserValue> usersFromGroups;
 
   public void addUsersFromGroup(LinkedList<UserValue> groupUsers) {
@@ -12,6 +12,9 @@ public class UserValue extends BundleValue {
   @XmlAttribute(name = "fullName")
   private String fullName;
 
+  @XmlAttribute(name = "email")
+  private String email;
+
   public String getValue() {
     return value;
   }
@@ -19,4 +22,8 @@ public class UserValue extends BundleValue {
   public String getFullName() {
     return fullName;
   }
+
+  public String getEmail() {
+    return email;
+  }
 }